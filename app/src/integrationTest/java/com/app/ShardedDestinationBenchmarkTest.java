@@ -0,0 +1,87 @@
+package com.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.app.service.FileOrganizer;
+import com.app.service.OrganizeOptions;
+import com.app.service.ShardLayout;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Measures per-file organize latency while the destination keeps growing, once
+ * with the flat layout and once with hash sharding. Each batch moves the same
+ * number of files into the destination left behind by the previous batches, so
+ * a flat per-batch latency means lookups do not degrade with folder size.
+ *
+ * <p>
+ * Run with {@code ./gradlew benchmark}; sizes can be tuned with
+ * {@code -Pbenchmark.batches=...} and {@code -Pbenchmark.batchSize=...}.
+ */
+@Tag("benchmark")
+public class ShardedDestinationBenchmarkTest {
+
+    private static final int BATCHES = Integer.getInteger("benchmark.batches", 10);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batchSize", 5_000);
+
+    @TempDir
+    Path workDir;
+
+    /** Compare per-file latency of the flat and the hash sharded layouts. */
+    @Test
+    void benchmarkDestinationGrowth() throws IOException {
+        List<Double> flat = runBatches(ShardLayout.none(), workDir.resolve("flat"));
+        List<Double> sharded = runBatches(ShardLayout.nameHash(2, 2), workDir.resolve("sharded"));
+
+        System.out.println();
+        System.out.printf("%-8s %-12s %-14s %-14s%n", "batch", "dest files", "flat us/file", "hash us/file");
+        for (int batch = 0; batch < BATCHES; batch++) {
+            System.out.printf("%-8d %-12d %-14.1f %-14.1f%n", batch + 1, (long) (batch + 1) * BATCH_SIZE,
+                    flat.get(batch), sharded.get(batch));
+        }
+    }
+
+    /**
+     * Organizes {@link #BATCHES} batches into one growing destination.
+     *
+     * @return Microseconds per file for each batch
+     */
+    private List<Double> runBatches(ShardLayout layout, Path root) throws IOException {
+        File sourceDir = Files.createDirectories(root.resolve("source")).toFile();
+        File destDir = Files.createDirectories(root.resolve("dest")).toFile();
+        OrganizeOptions options = new OrganizeOptions().setShardLayout(layout);
+        FileOrganizer organizer = new FileOrganizer();
+
+        List<Double> latencies = new ArrayList<>();
+        for (int batch = 0; batch < BATCHES; batch++) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Files.createFile(sourceDir.toPath().resolve("img-" + batch + "-" + i + ".jpg"));
+            }
+
+            // Silence the per-file progress output while timing
+            PrintStream stdout = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            int moved;
+            try {
+                moved = organizer.organizeFiles(sourceDir, destDir, options);
+            } finally {
+                System.setOut(stdout);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(BATCH_SIZE, moved, "Every file of the batch should be organized");
+            latencies.add(elapsed / 1_000.0 / BATCH_SIZE);
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,130 @@
+package com.app.stress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.app.command.FileOrganizerCommand;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+
+/**
+ * Runs the full {@link FileOrganizerCommand} against a generated tree and
+ * reports throughput, peak RSS, GC time and read/write I/O call counts.
+ *
+ * <p>
+ * Run with {@code ./gradlew stressTest} (disk-backed, below the build
+ * directory) or {@code ./gradlew stressTestTmpfs} (below {@code /dev/shm}). The
+ * tree is described by {@code -Pstress.*} properties, see
+ * {@link TreeSpec#fromSystemProperties()}; {@code -Pstress.root=...} picks
+ * another working directory and {@code -Pstress.keep=true} keeps the tree.
+ * The pipeline settings of the command are forwarded from
+ * {@code -Pstress.mode}, {@code -Pstress.prefetchThreads},
+ * {@code -Pstress.classifyThreads}, {@code -Pstress.moveThreads} and
+ * {@code -Pstress.queueCapacity}.
+ */
+@Tag("stress")
+public class FileOrganizerStressTest {
+
+    /** Command options set from the system property of the same name. */
+    private static final Map<String, String> COMMAND_OPTIONS = Map.of("stress.mode", "--mode",
+            "stress.prefetchThreads", "--prefetch-threads", "stress.classifyThreads", "--classify-threads",
+            "stress.moveThreads", "--move-threads", "stress.queueCapacity", "--queue-capacity");
+
+    /** Organize a generated tree end to end and report resource usage. */
+    @Test
+    void stressOrganizeCommand() throws IOException {
+        TreeSpec spec = TreeSpec.fromSystemProperties();
+        Path root = Files.createDirectories(Path.of(System.getProperty("stress.root", "build/tmp/stress")));
+        Path workDir = Files.createTempDirectory(root, "file-organizer-stress-");
+        Path sourceDir = Files.createDirectory(workDir.resolve("source"));
+        Path destDir = Files.createDirectory(workDir.resolve("dest"));
+
+        try {
+            System.out.println("Generating tree in " + workDir.toAbsolutePath() + ": " + spec);
+            SyntheticTreeGenerator.GeneratedTree tree = new SyntheticTreeGenerator(spec).generate(sourceDir, destDir);
+            System.out.println("Generated " + tree);
+
+            List<String> args = new ArrayList<>(
+                    List.of("--source", sourceDir.toString(), "--dest", destDir.toString()));
+            if (spec.getShardLayout().isSharded()) {
+                args.addAll(List.of("--shard", spec.getShardLayout().getType().name()));
+            }
+            COMMAND_OPTIONS.forEach((property, option) -> {
+                String value = System.getProperty(property);
+                if (value != null) {
+                    args.addAll(List.of(option, value));
+                }
+            });
+            System.out.println("Running with " + args.subList(4, args.size()));
+
+            CommandLine commandLine = new CommandLine(new FileOrganizerCommand());
+            StringWriter commandOutput = new StringWriter();
+            commandLine.setOut(new PrintWriter(commandOutput));
+            commandLine.setErr(new PrintWriter(commandOutput));
+
+            // Silence the per-file progress output, it would dominate the measurement
+            PrintStream stdout = System.out;
+            System.gc();
+            ProcessMetrics.resetPeakRss();
+            ProcessMetrics start = ProcessMetrics.capture();
+            int exitCode;
+            try {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                exitCode = commandLine.execute(args.toArray(new String[0]));
+            } finally {
+                System.setOut(stdout);
+            }
+            ProcessMetrics end = ProcessMetrics.capture();
+
+            System.out.println("Organized " + tree.getFiles() + " files:");
+            System.out.print(end.report(start, tree.getFiles()));
+
+            assertEquals(0, exitCode, commandOutput.toString());
+            assertEquals(tree.getFiles() + tree.getPreexistingFiles(), countFiles(destDir),
+                    "Every generated file should end up in the destination");
+            if (System.getProperty("stress.mode", "MOVE").equalsIgnoreCase("MOVE")) {
+                assertEquals(0, countFiles(sourceDir), "The source directory should be empty");
+            }
+        } finally {
+            if (!Boolean.getBoolean("stress.keep")) {
+                deleteTree(workDir);
+            }
+        }
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.app.stress;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Snapshot of process-level resource counters. Memory and I/O call counters
+ * are read from {@code /proc/self} and are reported as -1 on systems without
+ * it. The I/O call counters are the {@code syscr}/{@code syscw} fields of
+ * {@code /proc/self/io}, which only count read- and write-class calls. The
+ * stat, rename, link and mkdir calls an organize run mostly consists of are
+ * not included; run the harness under {@code strace -c -f} for those.
+ */
+public class ProcessMetrics {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+    private static final Path PROC_IO = Path.of("/proc/self/io");
+    private static final Path PROC_CLEAR_REFS = Path.of("/proc/self/clear_refs");
+
+    private final long nanoTime;
+    private final long gcTimeMillis;
+    private final long gcCount;
+    private final long peakRssKb;
+    private final long readCalls;
+    private final long writeCalls;
+
+    private ProcessMetrics(long nanoTime, long gcTimeMillis, long gcCount, long peakRssKb, long readCalls,
+            long writeCalls) {
+        this.nanoTime = nanoTime;
+        this.gcTimeMillis = gcTimeMillis;
+        this.gcCount = gcCount;
+        this.peakRssKb = peakRssKb;
+        this.readCalls = readCalls;
+        this.writeCalls = writeCalls;
+    }
+
+    /**
+     * Captures the current counters.
+     *
+     * @return A new snapshot
+     */
+    public static ProcessMetrics capture() {
+        long gcTime = 0;
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime += Math.max(0, gc.getCollectionTime());
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        return new ProcessMetrics(System.nanoTime(), gcTime, gcCount, procValue(PROC_STATUS, "VmHWM:"),
+                procValue(PROC_IO, "syscr:"), procValue(PROC_IO, "syscw:"));
+    }
+
+    /**
+     * Resets the kernel's peak RSS watermark, so the next snapshot only reflects
+     * the work done from now on. Does nothing where this is not supported.
+     */
+    public static void resetPeakRss() {
+        try {
+            Files.writeString(PROC_CLEAR_REFS, "5");
+        } catch (IOException | UnsupportedOperationException e) {
+            // Peak RSS then covers the whole process lifetime
+        }
+    }
+
+    private static long procValue(Path file, String key) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            for (String line : lines) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(line.substring(key.length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not available on this system
+        }
+        return -1;
+    }
+
+    /**
+     * Formats the difference between this (end) snapshot and an earlier one.
+     *
+     * @param start
+     *            Snapshot taken before the run
+     * @param files
+     *            Number of files processed during the run
+     * @return A multi-line report
+     */
+    public String report(ProcessMetrics start, long files) {
+        double seconds = (nanoTime - start.nanoTime) / 1e9;
+        return String.format("  wall time       %.2f s%n", seconds)
+                + String.format("  throughput      %.0f files/s%n", seconds > 0 ? files / seconds : 0.0)
+                + String.format("  peak RSS        %s%n", peakRssKb < 0 ? "n/a" : (peakRssKb / 1024) + " MiB")
+                + String.format("  GC time         %d ms in %d collections%n", gcTimeMillis - start.gcTimeMillis,
+                        gcCount - start.gcCount)
+                + String.format("  read I/O calls  %s%n", delta(readCalls, start.readCalls))
+                + String.format("  write I/O calls %s%n", delta(writeCalls, start.writeCalls));
+    }
+
+    private static String delta(long end, long start) {
+        return end < 0 || start < 0 ? "n/a" : String.valueOf(end - start);
+    }
+}
@@ -0,0 +1,188 @@
+package com.app.stress;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible flat source trees for stress runs. File names,
+ * extensions, sizes, contents and timestamps are all derived from the seed of
+ * the {@link TreeSpec}, so two runs with the same spec organize identical
+ * trees.
+ *
+ * <p>
+ * Extensions follow a Zipf distribution, so a few extensions receive most
+ * files. A configurable fraction of files gets a name that already exists in
+ * the destination, optionally with its first numeric suffixes taken too. Large
+ * files are created sparse, which keeps generation fast while still reporting
+ * their full size to the organizer.
+ */
+public class SyntheticTreeGenerator {
+
+    /** Common extensions used for the most popular ranks. */
+    private static final String[] COMMON_EXTENSIONS = {"jpg", "png", "pdf", "txt", "mp4", "zip", "docx", "csv", "log",
+            "json", "xml", "mp3", "gz", "html", "xlsx"};
+
+    /** Timestamps are spread over this window before a fixed reference instant. */
+    private static final Instant REFERENCE_TIME = Instant.parse("2026-01-01T00:00:00Z");
+    private static final long TIME_WINDOW_MILLIS = Duration.ofDays(3 * 365).toMillis();
+
+    private final TreeSpec spec;
+    private final String[] extensions;
+    private final double[] cumulativeWeights;
+
+    public SyntheticTreeGenerator(TreeSpec spec) {
+        this.spec = spec;
+        this.extensions = new String[spec.getExtensionCount()];
+        this.cumulativeWeights = new double[spec.getExtensionCount()];
+
+        double total = 0;
+        for (int rank = 0; rank < extensions.length; rank++) {
+            extensions[rank] = rank < COMMON_EXTENSIONS.length ? COMMON_EXTENSIONS[rank] : "x" + rank;
+            total += 1.0 / Math.pow(rank + 1, spec.getZipfExponent());
+            cumulativeWeights[rank] = total;
+        }
+        for (int rank = 0; rank < cumulativeWeights.length; rank++) {
+            cumulativeWeights[rank] /= total;
+        }
+    }
+
+    /**
+     * Populates the source directory and pre-creates the conflicting names in
+     * the destination directory.
+     *
+     * @param sourceDir
+     *            Existing, empty source directory
+     * @param destDir
+     *            Existing destination directory
+     * @return Summary of what was generated
+     * @throws IOException
+     *             If a file cannot be created
+     */
+    public GeneratedTree generate(Path sourceDir, Path destDir) throws IOException {
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        byte[] content = new byte[Math.max(1, spec.getSmallFileMaxBytes())];
+        random.nextBytes(content);
+
+        GeneratedTree tree = new GeneratedTree();
+        for (int index = 0; index < spec.getFileCount(); index++) {
+            String extension = random.nextDouble() < spec.getNoExtensionRate() ? "" : pickExtension(random);
+            String fileName = String.format("f%07d-%08x", index, random.nextInt())
+                    + (extension.isEmpty() ? "" : "." + extension);
+            long lastModified = REFERENCE_TIME.toEpochMilli() - random.nextLong(TIME_WINDOW_MILLIS);
+
+            Path file = sourceDir.resolve(fileName);
+            if (random.nextDouble() < spec.getLargeFileRate()) {
+                long size = largeFileSize(random);
+                try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                    raf.setLength(size);
+                }
+                tree.largeFiles++;
+                tree.bytes += size;
+            } else {
+                int size = spec.getSmallFileMaxBytes() > 0 ? random.nextInt(spec.getSmallFileMaxBytes() + 1) : 0;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.wrap(content, 0, size));
+                }
+                tree.bytes += size;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+            tree.files++;
+
+            if (random.nextDouble() < spec.getConflictRate()) {
+                int depth = 1 + random.nextInt(Math.max(1, spec.getMaxConflictDepth()));
+                tree.preexistingFiles += createConflicts(destDir, fileName, extension, lastModified, depth);
+                tree.conflicts++;
+            }
+        }
+        return tree;
+    }
+
+    private String pickExtension(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return extensions[Math.min(rank, extensions.length - 1)];
+    }
+
+    /** Draws a size from a Pareto tail between the configured bounds. */
+    private long largeFileSize(SplittableRandom random) {
+        double pareto = spec.getLargeFileMinBytes() / Math.pow(1.0 - random.nextDouble(), 1.0 / 1.5);
+        return Math.min(spec.getLargeFileMaxBytes(), (long) pareto);
+    }
+
+    /**
+     * Takes the file's name and its first {@code depth - 1} numeric suffixes in
+     * the folder the organizer will move it to.
+     */
+    private int createConflicts(Path destDir, String fileName, String extension, long lastModified, int depth)
+            throws IOException {
+        String folderName = extension.isEmpty() ? "no_extension" : extension;
+        if (spec.getShardLayout().isSharded()) {
+            folderName += "/" + spec.getShardLayout().shardPath(fileName, lastModified);
+        }
+        Path folder = Files.createDirectories(destDir.resolve(folderName));
+
+        String suffix = extension.isEmpty() ? "" : "." + extension;
+        String baseName = fileName.substring(0, fileName.length() - suffix.length());
+        Files.createFile(folder.resolve(fileName));
+        for (int counter = 1; counter < depth; counter++) {
+            Files.createFile(folder.resolve(baseName + "_" + counter + suffix));
+        }
+        return depth;
+    }
+
+    /** Summary of a generated tree. */
+    public static class GeneratedTree {
+        private long files;
+        private long largeFiles;
+        private long conflicts;
+        private long preexistingFiles;
+        private long bytes;
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getLargeFiles() {
+            return largeFiles;
+        }
+
+        /**
+         * @return Number of source files whose name was taken in the destination
+         */
+        public long getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * @return Number of files placed in the destination to cause conflicts
+         */
+        public long getPreexistingFiles() {
+            return preexistingFiles;
+        }
+
+        /**
+         * @return Apparent size of all source files in bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return files + " files (" + largeFiles + " large, " + conflicts + " conflicting), " + bytes + " bytes";
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.app.stress;
+
+import com.app.service.ShardLayout;
+
+/**
+ * Describes a synthetic source tree for {@link SyntheticTreeGenerator}. The
+ * same spec and seed always produce the same tree. Every setting can be
+ * overridden through a {@code stress.*} system property, see
+ * {@link #fromSystemProperties()}.
+ */
+public class TreeSpec {
+
+    private long seed = 42L;
+    private int fileCount = 100_000;
+    private int extensionCount = 50;
+    private double zipfExponent = 1.1;
+    private double noExtensionRate = 0.02;
+    private double conflictRate = 0.10;
+    private int maxConflictDepth = 3;
+    private int smallFileMaxBytes = 1024;
+    private double largeFileRate = 0.001;
+    private long largeFileMinBytes = 1L << 20;
+    private long largeFileMaxBytes = 256L << 20;
+    private ShardLayout shardLayout = ShardLayout.none();
+
+    /**
+     * Creates a spec from the defaults, overridden by any of these system
+     * properties: {@code stress.seed}, {@code stress.files},
+     * {@code stress.extensions}, {@code stress.zipf}, {@code stress.noExtension},
+     * {@code stress.conflictRate}, {@code stress.conflictDepth},
+     * {@code stress.smallMax}, {@code stress.largeRate}, {@code stress.largeMin},
+     * {@code stress.largeMax} and {@code stress.shard} (NONE, HASH or MTIME with
+     * the default width and depth).
+     *
+     * @return The configured spec
+     */
+    public static TreeSpec fromSystemProperties() {
+        TreeSpec spec = new TreeSpec();
+        spec.seed = Long.getLong("stress.seed", spec.seed);
+        spec.fileCount = Integer.getInteger("stress.files", spec.fileCount);
+        spec.extensionCount = Integer.getInteger("stress.extensions", spec.extensionCount);
+        spec.zipfExponent = doubleProperty("stress.zipf", spec.zipfExponent);
+        spec.noExtensionRate = doubleProperty("stress.noExtension", spec.noExtensionRate);
+        spec.conflictRate = doubleProperty("stress.conflictRate", spec.conflictRate);
+        spec.maxConflictDepth = Integer.getInteger("stress.conflictDepth", spec.maxConflictDepth);
+        spec.smallFileMaxBytes = Integer.getInteger("stress.smallMax", spec.smallFileMaxBytes);
+        spec.largeFileRate = doubleProperty("stress.largeRate", spec.largeFileRate);
+        spec.largeFileMinBytes = Long.getLong("stress.largeMin", spec.largeFileMinBytes);
+        spec.largeFileMaxBytes = Long.getLong("stress.largeMax", spec.largeFileMaxBytes);
+
+        ShardLayout.Type shard = ShardLayout.Type.valueOf(System.getProperty("stress.shard", "NONE").toUpperCase());
+        spec.shardLayout = ShardLayout.of(shard, 2, 2);
+        return spec;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public TreeSpec setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public TreeSpec setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    public int getExtensionCount() {
+        return extensionCount;
+    }
+
+    public TreeSpec setExtensionCount(int extensionCount) {
+        this.extensionCount = extensionCount;
+        return this;
+    }
+
+    /**
+     * @return Skew of the extension distribution; 0 is uniform, higher values
+     *         concentrate files in the most popular extensions
+     */
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public TreeSpec setZipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    public double getNoExtensionRate() {
+        return noExtensionRate;
+    }
+
+    public TreeSpec setNoExtensionRate(double noExtensionRate) {
+        this.noExtensionRate = noExtensionRate;
+        return this;
+    }
+
+    /**
+     * @return Fraction of files whose name is already taken in the destination
+     */
+    public double getConflictRate() {
+        return conflictRate;
+    }
+
+    public TreeSpec setConflictRate(double conflictRate) {
+        this.conflictRate = conflictRate;
+        return this;
+    }
+
+    /**
+     * @return Maximum number of taken names per conflicting file, i.e. how many
+     *         numeric suffixes have to be probed before a free name is found
+     */
+    public int getMaxConflictDepth() {
+        return maxConflictDepth;
+    }
+
+    public TreeSpec setMaxConflictDepth(int maxConflictDepth) {
+        this.maxConflictDepth = maxConflictDepth;
+        return this;
+    }
+
+    public int getSmallFileMaxBytes() {
+        return smallFileMaxBytes;
+    }
+
+    public TreeSpec setSmallFileMaxBytes(int smallFileMaxBytes) {
+        this.smallFileMaxBytes = smallFileMaxBytes;
+        return this;
+    }
+
+    /**
+     * @return Fraction of files drawn from the large-file tail
+     */
+    public double getLargeFileRate() {
+        return largeFileRate;
+    }
+
+    public TreeSpec setLargeFileRate(double largeFileRate) {
+        this.largeFileRate = largeFileRate;
+        return this;
+    }
+
+    public long getLargeFileMinBytes() {
+        return largeFileMinBytes;
+    }
+
+    public TreeSpec setLargeFileMinBytes(long largeFileMinBytes) {
+        this.largeFileMinBytes = largeFileMinBytes;
+        return this;
+    }
+
+    public long getLargeFileMaxBytes() {
+        return largeFileMaxBytes;
+    }
+
+    public TreeSpec setLargeFileMaxBytes(long largeFileMaxBytes) {
+        this.largeFileMaxBytes = largeFileMaxBytes;
+        return this;
+    }
+
+    /**
+     * @return Layout the organizer will run with, used to place conflicting names
+     *         where the organizer will look for them
+     */
+    public ShardLayout getShardLayout() {
+        return shardLayout;
+    }
+
+    public TreeSpec setShardLayout(ShardLayout shardLayout) {
+        this.shardLayout = shardLayout;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "seed=" + seed + ", files=" + fileCount + ", extensions=" + extensionCount + ", zipf=" + zipfExponent
+                + ", conflictRate=" + conflictRate + ", largeRate=" + largeFileRate + ", shard=" + shardLayout;
+    }
+}
@@ -4,18 +4,26 @@
 package com.app;
 
 import com.app.command.FileOrganizerCommand;
+import com.app.command.ServeCommand;
+import java.util.Arrays;
 import picocli.CommandLine;
 
 /** Main application class for the File Organizer CLI. */
 public class App {
     /**
-     * Main entry point of the application.
+     * Main entry point of the application. {@code serve} as the first argument
+     * starts the HTTP control API instead of a single organize run.
      *
      * @param args
      *            Command line arguments passed to the application
      */
     public static void main(String[] args) {
-        int exitCode = new CommandLine(new FileOrganizerCommand()).execute(args);
+        int exitCode;
+        if (args.length > 0 && args[0].equals("serve")) {
+            exitCode = new CommandLine(new ServeCommand()).execute(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            exitCode = new CommandLine(new FileOrganizerCommand()).execute(args);
+        }
         System.exit(exitCode);
     }
 }
@@ -0,0 +1,58 @@
+package com.app.command;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+/**
+ * Converts durations such as {@code 90s}, {@code 45m}, {@code 2h},
+ * {@code 1h30m} or ISO-8601 values like {@code PT2H} for command-line options.
+ */
+public class DurationConverter implements ITypeConverter<Duration> {
+
+    private static final Pattern PART = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+
+    @Override
+    public Duration convert(String value) {
+        String text = value.trim().toLowerCase();
+        if (text.startsWith("p")) {
+            try {
+                return Duration.parse(text.toUpperCase());
+            } catch (DateTimeParseException e) {
+                throw new TypeConversionException("Invalid duration '" + value + "'");
+            }
+        }
+
+        Matcher matcher = PART.matcher(text);
+        Duration duration = Duration.ZERO;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            long amount = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "ms" :
+                    duration = duration.plusMillis(amount);
+                    break;
+                case "s" :
+                    duration = duration.plusSeconds(amount);
+                    break;
+                case "m" :
+                    duration = duration.plusMinutes(amount);
+                    break;
+                case "h" :
+                    duration = duration.plusHours(amount);
+                    break;
+                default :
+                    duration = duration.plusDays(amount);
+            }
+            end = matcher.end();
+        }
+        if (end == 0 || end != text.length()) {
+            throw new TypeConversionException(
+                    "Invalid duration '" + value + "', expected e.g. 90s, 45m, 2h, 1h30m or PT2H");
+        }
+        return duration;
+    }
+}
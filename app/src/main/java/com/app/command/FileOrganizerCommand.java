@@ -1,10 +1,19 @@
 package com.app.command;
 
+import com.app.service.CancellationToken;
 import com.app.service.FileOrganizer;
+import com.app.service.MaterializeMode;
+import com.app.service.OrganizeOptions;
+import com.app.service.OrganizeProgress;
+import com.app.service.OrganizeResult;
+import com.app.service.ShardLayout;
+import com.app.service.StageStats;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.Duration;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
@@ -28,12 +37,74 @@ public class FileOrganizerCommand implements Callable<Integer> {
             "-d"}, description = "Destination directory where organized folders will be created", required = true)
     private File destDir;
 
+    @Option(names = "--shard", description = "Shard layout below extension folders: ${COMPLETION-CANDIDATES}")
+    private ShardLayout.Type shardType = ShardLayout.Type.NONE;
+
+    @Option(names = "--shard-width", description = "Hex digits per HASH level (default: ${DEFAULT-VALUE})")
+    private int shardWidth = 2;
+
+    @Option(names = "--shard-depth", description = "HASH levels, or 1-3 for MTIME y/m/d (default: ${DEFAULT-VALUE})")
+    private int shardDepth = 2;
+
+    @Option(names = "--max-duration", converter = DurationConverter.class,
+            description = "Stop starting new moves after this time, e.g. 45m, 2h or PT2H")
+    private Duration maxDuration;
+
+    @Option(names = "--max-files", description = "Stop after attempting this many files (default: no limit)")
+    private long maxFiles;
+
+    @Option(names = "--extract-archives", description = "Organize the members of zip/tar archives, not the archives")
+    private boolean extractArchives;
+
+    @Option(names = "--archive-threads", description = "Archives extracted in parallel (default: ${DEFAULT-VALUE})")
+    private int archiveThreads = 4;
+
+    @Option(names = "--mode", description = "MOVE files, or HARDLINK/REFLINK them (default: ${DEFAULT-VALUE})")
+    private MaterializeMode mode = MaterializeMode.MOVE;
+
+    @Option(names = "--prefetch-threads", description = "Threads reading file attributes (default: ${DEFAULT-VALUE})")
+    private int prefetchThreads = 4;
+
+    @Option(names = "--classify-threads", description = "Threads picking destination names (default: ${DEFAULT-VALUE})")
+    private int classifyThreads = 2;
+
+    @Option(names = "--move-threads", description = "Files moved in parallel (default: ${DEFAULT-VALUE})")
+    private int moveThreads = 4;
+
+    @Option(names = "--queue-capacity", description = "Entries buffered between stages (default: ${DEFAULT-VALUE})")
+    private int queueCapacity = 1024;
+
+    @Option(names = "--incremental", description = "Skip entries an earlier run evaluated while they are unchanged")
+    private boolean incremental;
+
+    @Option(names = "--stats", description = "Print queue depth and utilization of each pipeline stage")
+    private boolean stats;
+
     @Override
     public Integer call() {
         // Get the output and error streams
         PrintWriter out = spec.commandLine().getOut();
         PrintWriter err = spec.commandLine().getErr();
 
+        // Validate the shard layout and budgets before touching the filesystem
+        OrganizeOptions options = new OrganizeOptions();
+        try {
+            options.setShardLayout(ShardLayout.of(shardType, shardWidth, shardDepth));
+            options.setMaxDuration(maxDuration);
+            options.setMaxFiles(maxFiles);
+            options.setExtractArchives(extractArchives);
+            options.setArchiveThreads(archiveThreads);
+            options.setMaterializeMode(mode);
+            options.setPrefetchThreads(prefetchThreads);
+            options.setClassifyThreads(classifyThreads);
+            options.setMoveThreads(moveThreads);
+            options.setQueueCapacity(queueCapacity);
+            options.setIncremental(incremental);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+
         // Validate input directories
         if (!sourceDir.exists() || !sourceDir.isDirectory()) {
             err.println("Error: Source directory does not exist or is not a directory");
@@ -53,12 +124,45 @@ public class FileOrganizerCommand implements Callable<Integer> {
 
         // Implement file organization logic by calling the FileOrganizer service
         out.println("Organizing files from: " + sourceDir.getAbsolutePath());
-        out.println("Moving to: " + destDir.getAbsolutePath());
+        out.println(describe(mode) + " to: " + destDir.getAbsolutePath());
+        if (options.getShardLayout().isSharded()) {
+            out.println("Shard layout: " + options.getShardLayout());
+        }
+
+        // On Ctrl+C or SIGTERM, let the file being moved finish before exiting
+        CancellationToken cancellation = new CancellationToken();
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread drainHook = new Thread(() -> {
+            cancellation.cancel();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(drainHook);
 
         FileOrganizer organizer = new FileOrganizer();
+        OrganizeProgress progress = new OrganizeProgress();
         try {
-            int movedFilesCount = organizer.organizeFiles(sourceDir, destDir);
-            out.println("Successfully organized " + movedFilesCount + " files.");
+            OrganizeResult result = organizer.organize(sourceDir, destDir, options, progress, cancellation);
+            out.println("Successfully organized " + (result.getMoved() + result.getExtracted()) + " files.");
+            if (result.getUnchanged() > 0) {
+                out.println("Skipped " + result.getUnchanged() + " entries unchanged since an earlier run.");
+            }
+            if (result.getArchives() > 0) {
+                out.println(
+                        "Extracted " + result.getExtracted() + " files from " + result.getArchives() + " archives.");
+            }
+
+            // Report where a stopped run left off; the next run continues there
+            if (!result.isComplete()) {
+                out.println("Stopped early (" + describe(result.getStopReason()) + "): " + result.getRemaining()
+                        + " entries remain and will be handled by the next run.");
+            }
+            if (stats) {
+                printStages(out, progress);
+            }
 
             // If no files were moved, it might be because the directory was empty
             // or contained only directories, which is still a success condition
@@ -66,6 +170,51 @@ public class FileOrganizerCommand implements Callable<Integer> {
         } catch (IOException e) {
             err.println("Error organizing files: " + e.getMessage());
             return 1;
+        } finally {
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(drainHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down, the hook is running
+            }
+        }
+    }
+
+    /**
+     * Prints one line per pipeline stage; the stage with the highest utilization
+     * and a full queue in front of it is the bottleneck.
+     */
+    private static void printStages(PrintWriter out, OrganizeProgress progress) {
+        out.println(String.format("%-10s %7s %10s %15s %11s", "Stage", "Threads", "Entries", "Peak queue",
+                "Utilization"));
+        for (StageStats stage : progress.getStages()) {
+            String queue = stage.getQueueCapacity() == 0
+                    ? "-"
+                    : stage.getPeakQueueDepth() + "/" + stage.getQueueCapacity();
+            out.println(String.format("%-10s %7d %10d %15s %10.1f%%", stage.getName(), stage.getThreads(),
+                    stage.getProcessed(), queue, stage.getUtilization() * 100));
+        }
+    }
+
+    private static String describe(MaterializeMode mode) {
+        switch (mode) {
+            case HARDLINK :
+                return "Linking";
+            case REFLINK :
+                return "Cloning";
+            default :
+                return "Moving";
+        }
+    }
+
+    private static String describe(OrganizeResult.StopReason reason) {
+        switch (reason) {
+            case TIME_BUDGET :
+                return "time budget reached";
+            case FILE_BUDGET :
+                return "file budget reached";
+            default :
+                return "cancelled";
         }
     }
 }
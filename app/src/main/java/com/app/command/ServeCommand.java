@@ -0,0 +1,72 @@
+package com.app.command;
+
+import com.app.server.OrganizeServer;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Runs the organizer as a long-lived service that accepts organize jobs over
+ * HTTP. Started with {@code file-organizer serve [options]}.
+ */
+@Command(name = "file-organizer serve", mixinStandardHelpOptions = true, version = "1.0",
+        description = "Runs an HTTP/JSON control API that queues and runs organize jobs.")
+public class ServeCommand implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec; // injected by picocli
+
+    @Option(names = {"--port", "-p"}, description = "Port to listen on (default: ${DEFAULT-VALUE})")
+    private int port = 8080;
+
+    @Option(names = "--bind", description = "Address to bind (default: ${DEFAULT-VALUE})")
+    private String bindAddress = "127.0.0.1";
+
+    @Option(names = {"--workers", "-w"}, description = "Jobs run at the same time (default: ${DEFAULT-VALUE})")
+    private int workers = 2;
+
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+
+    @Override
+    public Integer call() {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
+
+        if (workers < 1) {
+            err.println("Error: Number of workers must be at least 1");
+            return 1;
+        }
+
+        OrganizeServer server;
+        try {
+            server = new OrganizeServer(new InetSocketAddress(bindAddress, port), workers);
+        } catch (IOException e) {
+            err.println("Error starting server: " + e.getMessage());
+            return 1;
+        }
+
+        // Cancel outstanding jobs and stop cleanly on Ctrl+C or SIGTERM
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            shutdown.countDown();
+        }));
+
+        server.start();
+        out.println("Listening on http://" + bindAddress + ":" + server.getPort() + " with " + workers + " workers");
+        out.flush();
+
+        try {
+            shutdown.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+        return 0;
+    }
+}
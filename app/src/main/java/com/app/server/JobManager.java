@@ -0,0 +1,293 @@
+package com.app.server;
+
+import com.app.service.FileOrganizer;
+import com.app.service.OrganizeOptions;
+import com.app.service.OrganizeResult;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queues organize jobs and runs them on a fixed pool of workers that share one
+ * {@link FileOrganizer}. Because the process stays up between jobs, later jobs
+ * run on already loaded and JIT-compiled code.
+ *
+ * <p>
+ * Jobs that share a directory, as source or as destination, run one after
+ * another in submission order, so they never move the same files, race on
+ * conflict renaming or share the pending list and index in a source directory.
+ * A job is only handed to a worker once both of its directories are free, so a
+ * job waiting for a busy directory never occupies a worker, and jobs for other
+ * directories run concurrently.
+ */
+public class JobManager implements AutoCloseable {
+
+    /** Number of finished jobs kept for status queries. */
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    private final FileOrganizer engine = new FileOrganizer();
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final Map<Long, OrganizeJob> jobs = new ConcurrentSkipListMap<>();
+    private final Deque<OrganizeJob> waitingJobs = new ArrayDeque<>();
+    private final Set<String> busyDirectories = new HashSet<>();
+    private int dispatchedJobs;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    private final AtomicLong filesMoved = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final Instant startedAt = Instant.now();
+
+    /**
+     * @param workerCount
+     *            Number of jobs that may run at the same time
+     */
+    public JobManager(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1");
+        }
+        this.workerCount = workerCount;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "organize-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues a new job.
+     *
+     * @param sourceDir
+     *            Existing source directory
+     * @param destDir
+     *            Destination directory, created when the job starts if missing
+     * @param options
+     *            Settings for the run
+     * @return The queued job
+     */
+    public OrganizeJob submit(File sourceDir, File destDir, OrganizeOptions options) {
+        OrganizeJob job = new OrganizeJob(nextId.getAndIncrement(), sourceDir, destDir, options);
+        jobs.put(job.getId(), job);
+        synchronized (this) {
+            waitingJobs.add(job);
+            dispatch();
+        }
+        return job;
+    }
+
+    /**
+     * @param id
+     *            Job id
+     * @return The job, or null if it is unknown or no longer retained
+     */
+    public OrganizeJob get(long id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return All retained jobs, oldest first
+     */
+    public List<OrganizeJob> list() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Requests cancellation of a job.
+     *
+     * @param id
+     *            Job id
+     * @return The job, or null if it is unknown
+     */
+    public OrganizeJob cancel(long id) {
+        OrganizeJob job = jobs.get(id);
+        if (job != null) {
+            job.cancel();
+            synchronized (this) {
+                dispatch();
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Hands waiting jobs to the workers, oldest first, while a worker is free.
+     * A job is only started once neither of its directories is in use; a job
+     * that has to wait also holds back later jobs sharing one of its
+     * directories, so each directory's jobs keep their submission order. Jobs
+     * cancelled while waiting are dropped. Callers hold the monitor.
+     */
+    private void dispatch() {
+        Set<String> blocked = new HashSet<>(busyDirectories);
+        Iterator<OrganizeJob> waiting = waitingJobs.iterator();
+        while (waiting.hasNext() && dispatchedJobs < workerCount) {
+            OrganizeJob job = waiting.next();
+            if (job.getState() != OrganizeJob.State.QUEUED) {
+                waiting.remove();
+                continue;
+            }
+            List<String> directories = directoryKeys(job);
+            boolean free = directories.stream().noneMatch(blocked::contains);
+            blocked.addAll(directories);
+            if (free) {
+                waiting.remove();
+                busyDirectories.addAll(directories);
+                dispatchedJobs++;
+                workers.execute(() -> run(job, directories));
+            }
+        }
+    }
+
+    private static List<String> directoryKeys(OrganizeJob job) {
+        return List.of(job.getSourceDir().getAbsoluteFile().toPath().normalize().toString(),
+                job.getDestDir().getAbsoluteFile().toPath().normalize().toString());
+    }
+
+    private void run(OrganizeJob job, List<String> directories) {
+        try {
+            if (job.start()) {
+                runOrganize(job);
+            }
+        } finally {
+            synchronized (this) {
+                busyDirectories.removeAll(directories);
+                dispatchedJobs--;
+                dispatch();
+            }
+            evictFinishedJobs();
+        }
+    }
+
+    private void runOrganize(OrganizeJob job) {
+        runningJobs.incrementAndGet();
+        OrganizeResult result = null;
+        String errorMessage;
+        try {
+            File destDir = job.getDestDir();
+            if (!destDir.isDirectory() && !destDir.mkdirs()) {
+                errorMessage = "Could not create destination directory";
+            } else {
+                result = engine.organize(job.getSourceDir(), destDir, job.getOptions(), job.getProgress(),
+                        job.getCancellation());
+                errorMessage = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            errorMessage = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+
+        // Move the job's counts into the totals together with its state change,
+        // so metrics() counts them exactly once
+        synchronized (this) {
+            runningJobs.decrementAndGet();
+            filesMoved.addAndGet(job.getProgress().getMoved());
+            filesFailed.addAndGet(job.getProgress().getFailed());
+            if (result != null) {
+                job.finish(result);
+            } else {
+                job.fail(errorMessage);
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(job -> job.getState().isFinished()).count();
+        for (OrganizeJob job : jobs.values()) {
+            if (finished <= MAX_FINISHED_JOBS) {
+                break;
+            }
+            if (job.getState().isFinished()) {
+                jobs.remove(job.getId());
+                finished--;
+            }
+        }
+    }
+
+    /**
+     * @return Server-wide counters as a JSON-ready map
+     */
+    public Map<String, Object> metrics() {
+        Map<OrganizeJob.State, Long> byState = new EnumMap<>(OrganizeJob.State.class);
+        for (OrganizeJob.State state : OrganizeJob.State.values()) {
+            byState.put(state, 0L);
+        }
+        long inFlightMoved = 0;
+        long inFlightFailed = 0;
+        long totalMoved;
+        long totalFailed;
+        int running;
+        synchronized (this) {
+            for (OrganizeJob job : jobs.values()) {
+                OrganizeJob.State state = job.getState();
+                byState.merge(state, 1L, Long::sum);
+                if (state == OrganizeJob.State.RUNNING) {
+                    inFlightMoved += job.getProgress().getMoved();
+                    inFlightFailed += job.getProgress().getFailed();
+                }
+            }
+            totalMoved = filesMoved.get() + inFlightMoved;
+            totalFailed = filesFailed.get() + inFlightFailed;
+            running = runningJobs.get();
+        }
+
+        Map<String, Object> jobCounts = new LinkedHashMap<>();
+        byState.forEach((state, count) -> jobCounts.put(state.name().toLowerCase(), count));
+
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        Runtime runtime = Runtime.getRuntime();
+        jvm.put("heapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+        jvm.put("heapMaxBytes", runtime.maxMemory());
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        jvm.put("gcTimeMillis", gcMillis);
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        if (compiler != null && compiler.isCompilationTimeMonitoringSupported()) {
+            jvm.put("jitCompileTimeMillis", compiler.getTotalCompilationTime());
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("uptimeMillis", Duration.between(startedAt, Instant.now()).toMillis());
+        metrics.put("workers", workerCount);
+        metrics.put("runningJobs", running);
+        metrics.put("jobs", jobCounts);
+        metrics.put("filesMoved", totalMoved);
+        metrics.put("filesFailed", totalFailed);
+        metrics.put("jvm", jvm);
+        return metrics;
+    }
+
+    /** Cancels all jobs and waits for running jobs to stop after their current file. */
+    @Override
+    public void close() {
+        jobs.values().forEach(OrganizeJob::cancel);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
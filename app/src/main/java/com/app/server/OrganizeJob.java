@@ -0,0 +1,186 @@
+package com.app.server;
+
+import com.app.service.CancellationToken;
+import com.app.service.OrganizeOptions;
+import com.app.service.OrganizeProgress;
+import com.app.service.OrganizeResult;
+import com.app.service.StageStats;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** An organize request submitted to the control API, and its live status. */
+public class OrganizeJob {
+
+    /** Lifecycle of a job. */
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        /**
+         * @return True if the job will not change any more
+         */
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final long id;
+    private final File sourceDir;
+    private final File destDir;
+    private final OrganizeOptions options;
+    private final OrganizeProgress progress = new OrganizeProgress();
+    private final CancellationToken cancellation = new CancellationToken();
+    private final Instant submittedAt = Instant.now();
+
+    private State state = State.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+    private OrganizeResult result;
+
+    OrganizeJob(long id, File sourceDir, File destDir, OrganizeOptions options) {
+        this.id = id;
+        this.sourceDir = sourceDir;
+        this.destDir = destDir;
+        this.options = options;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public File getSourceDir() {
+        return sourceDir;
+    }
+
+    public File getDestDir() {
+        return destDir;
+    }
+
+    public OrganizeOptions getOptions() {
+        return options;
+    }
+
+    public OrganizeProgress getProgress() {
+        return progress;
+    }
+
+    CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Moves a queued job to {@link State#RUNNING}.
+     *
+     * @return False if the job was cancelled before it could start
+     */
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    /**
+     * Records the outcome of a job that ran to its end or stopped early.
+     *
+     * @param runResult
+     *            Result of the organize run
+     */
+    synchronized void finish(OrganizeResult runResult) {
+        result = runResult;
+        state = runResult.getStopReason() == OrganizeResult.StopReason.CANCELLED ? State.CANCELLED : State.SUCCEEDED;
+        finishedAt = Instant.now();
+    }
+
+    /**
+     * Records that a job failed.
+     *
+     * @param errorMessage
+     *            Error message
+     */
+    synchronized void fail(String errorMessage) {
+        state = State.FAILED;
+        error = errorMessage;
+        finishedAt = Instant.now();
+    }
+
+    /**
+     * Requests cancellation. Queued jobs are cancelled right away; running jobs
+     * finish the file they are moving and then stop.
+     *
+     * @return False if the job had already finished
+     */
+    synchronized boolean cancel() {
+        if (state.isFinished()) {
+            return false;
+        }
+        cancellation.cancel();
+        if (state == State.QUEUED) {
+            state = State.CANCELLED;
+            finishedAt = Instant.now();
+        }
+        return true;
+    }
+
+    /**
+     * @return The status of this job as a JSON-ready map
+     */
+    synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", String.valueOf(id));
+        map.put("state", state.name());
+        map.put("source", sourceDir.getAbsolutePath());
+        map.put("dest", destDir.getAbsolutePath());
+        map.put("shard", options.getShardLayout().toString());
+        map.put("mode", options.getMaterializeMode().name());
+        map.put("submittedAt", submittedAt.toString());
+        map.put("startedAt", startedAt == null ? null : startedAt.toString());
+        map.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        if (startedAt != null) {
+            Instant end = finishedAt == null ? Instant.now() : finishedAt;
+            map.put("durationMillis", Duration.between(startedAt, end).toMillis());
+        }
+        map.put("error", error);
+        if (result != null) {
+            map.put("stopReason", result.getStopReason().name());
+            map.put("remaining", result.getRemaining());
+        }
+
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("entries", progress.getEntries());
+        counters.put("processed", progress.getProcessed());
+        counters.put("moved", progress.getMoved());
+        counters.put("failed", progress.getFailed());
+        counters.put("skipped", progress.getSkipped());
+        counters.put("archives", progress.getArchives());
+        counters.put("extracted", progress.getExtracted());
+        counters.put("unchanged", progress.getUnchanged());
+        map.put("progress", counters);
+
+        List<Map<String, Object>> stages = new ArrayList<>();
+        for (StageStats stage : progress.getStages()) {
+            Map<String, Object> stageMap = new LinkedHashMap<>();
+            stageMap.put("name", stage.getName());
+            stageMap.put("threads", stage.getThreads());
+            stageMap.put("processed", stage.getProcessed());
+            stageMap.put("queueDepth", stage.getQueueDepth());
+            stageMap.put("peakQueueDepth", stage.getPeakQueueDepth());
+            stageMap.put("queueCapacity", stage.getQueueCapacity());
+            stageMap.put("utilization", Math.round(stage.getUtilization() * 1000) / 1000.0);
+            stages.add(stageMap);
+        }
+        map.put("stages", stages);
+        return map;
+    }
+}
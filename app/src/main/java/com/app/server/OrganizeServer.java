@@ -0,0 +1,244 @@
+package com.app.server;
+
+import com.app.service.MaterializeMode;
+import com.app.service.OrganizeOptions;
+import com.app.service.ShardLayout;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON control API for a long-running organizer. Endpoints:
+ *
+ * <ul>
+ * <li>{@code POST /jobs} with {@code {"source": ..., "dest": ..., "shard": ...,
+ * "shardWidth": ..., "shardDepth": ..., "maxFiles": ...,
+ * "maxDurationSeconds": ..., "extractArchives": ..., "mode": ...,
+ * "prefetchThreads": ..., "classifyThreads": ..., "moveThreads": ...,
+ * "queueCapacity": ..., "incremental": ...}} queues a job and returns its
+ * status</li>
+ * <li>{@code GET /jobs} lists retained jobs</li>
+ * <li>{@code GET /jobs/{id}} returns the status and progress of a job, including
+ * the queue depth and utilization of each pipeline stage</li>
+ * <li>{@code DELETE /jobs/{id}} cancels a job</li>
+ * <li>{@code GET /metrics} returns server-wide counters</li>
+ * <li>{@code GET /health} returns {@code {"status": "UP"}}</li>
+ * </ul>
+ */
+public class OrganizeServer implements AutoCloseable {
+
+    /** Largest accepted request body. */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor;
+    private final JobManager jobManager;
+
+    /**
+     * Binds the server; call {@link #start()} to begin accepting requests.
+     *
+     * @param address
+     *            Address to bind, port 0 picks a free port
+     * @param workers
+     *            Number of jobs that may run at the same time
+     * @throws IOException
+     *             If the address cannot be bound
+     */
+    public OrganizeServer(InetSocketAddress address, int workers) throws IOException {
+        this.jobManager = new JobManager(workers);
+        this.httpServer = HttpServer.create(address, 0);
+        this.httpExecutor = Executors.newFixedThreadPool(4);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.createContext("/jobs", this::handleJobs);
+        httpServer.createContext("/metrics", exchange -> {
+            if (requireMethod(exchange, "GET")) {
+                send(exchange, 200, jobManager.metrics());
+            }
+        });
+        httpServer.createContext("/health", exchange -> {
+            if (requireMethod(exchange, "GET")) {
+                send(exchange, 200, Map.of("status", "UP"));
+            }
+        });
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * @return The bound port
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and cancels outstanding jobs. */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        httpExecutor.shutdown();
+        jobManager.close();
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/jobs") || path.equals("/jobs/")) {
+                if (method.equals("POST")) {
+                    submitJob(exchange);
+                } else if (requireMethod(exchange, "GET")) {
+                    List<Object> jobs = new ArrayList<>();
+                    jobManager.list().forEach(job -> jobs.add(job.toMap()));
+                    send(exchange, 200, Map.of("jobs", jobs));
+                }
+                return;
+            }
+
+            OrganizeJob job;
+            try {
+                long id = Long.parseLong(path.substring("/jobs/".length()));
+                job = method.equals("DELETE") ? jobManager.cancel(id) : jobManager.get(id);
+            } catch (NumberFormatException e) {
+                job = null;
+            }
+            if (job == null) {
+                sendError(exchange, 404, "Unknown job");
+            } else if (method.equals("DELETE") || requireMethod(exchange, "GET")) {
+                send(exchange, 200, job.toMap());
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.toString());
+        }
+    }
+
+    private void submitJob(HttpExchange exchange) throws IOException {
+        Map<String, Object> request;
+        try {
+            request = Json.parseObject(readBody(exchange));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "Invalid JSON: " + e.getMessage());
+            return;
+        }
+
+        Object source = request.get("source");
+        Object dest = request.get("dest");
+        if (!(source instanceof String) || !(dest instanceof String)) {
+            sendError(exchange, 400, "Both 'source' and 'dest' must be given as strings");
+            return;
+        }
+
+        File sourceDir = new File((String) source);
+        File destDir = new File((String) dest);
+        if (!sourceDir.isDirectory()) {
+            sendError(exchange, 400, "Source directory does not exist or is not a directory");
+            return;
+        }
+        if (destDir.exists() && !destDir.isDirectory()) {
+            sendError(exchange, 400, "Destination path exists but is not a directory");
+            return;
+        }
+
+        OrganizeOptions options = new OrganizeOptions();
+        try {
+            ShardLayout.Type shardType = ShardLayout.Type
+                    .valueOf(String.valueOf(request.getOrDefault("shard", "NONE")).toUpperCase());
+            options.setShardLayout(ShardLayout.of(shardType, intValue(request, "shardWidth", 2),
+                    intValue(request, "shardDepth", 2)));
+            options.setMaxFiles(longValue(request, "maxFiles", 0));
+            int maxDurationSeconds = intValue(request, "maxDurationSeconds", 0);
+            options.setMaxDuration(maxDurationSeconds == 0 ? null : Duration.ofSeconds(maxDurationSeconds));
+            Object extractArchives = request.getOrDefault("extractArchives", Boolean.FALSE);
+            if (!(extractArchives instanceof Boolean)) {
+                throw new IllegalArgumentException("'extractArchives' must be a boolean");
+            }
+            options.setExtractArchives((Boolean) extractArchives);
+            Object incremental = request.getOrDefault("incremental", Boolean.FALSE);
+            if (!(incremental instanceof Boolean)) {
+                throw new IllegalArgumentException("'incremental' must be a boolean");
+            }
+            options.setIncremental((Boolean) incremental);
+            options.setMaterializeMode(
+                    MaterializeMode.valueOf(String.valueOf(request.getOrDefault("mode", "MOVE")).toUpperCase()));
+            options.setPrefetchThreads(intValue(request, "prefetchThreads", options.getPrefetchThreads()));
+            options.setClassifyThreads(intValue(request, "classifyThreads", options.getClassifyThreads()));
+            options.setMoveThreads(intValue(request, "moveThreads", options.getMoveThreads()));
+            options.setQueueCapacity(intValue(request, "queueCapacity", options.getQueueCapacity()));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        OrganizeJob job = jobManager.submit(sourceDir, destDir, options);
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+        send(exchange, 202, job.toMap());
+    }
+
+    private static long longValue(Map<String, Object> request, String key, long defaultValue) {
+        Object value = request.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long)) {
+            throw new IllegalArgumentException("'" + key + "' must be an integer");
+        }
+        return (Long) value;
+    }
+
+    private static int intValue(Map<String, Object> request, String key, int defaultValue) {
+        Object value = request.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("'" + key + "' must be an integer");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+        if (exchange.getRequestMethod().equals(method)) {
+            return true;
+        }
+        sendError(exchange, 405, "Method not allowed");
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        send(exchange, status, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Organizes the members of zip and tar archives directly into extension
+ * folders. Each member is streamed from the archive to its final location, so
+ * the data is written once and no intermediate extraction directory is needed.
+ * Members are flattened to their file name, like files in the source
+ * directory, and get the same conflict renaming and timestamps.
+ *
+ * <p>
+ * Extraction of an archive is all-or-nothing: if a member cannot be written,
+ * or a consumed archive cannot be deleted afterwards, the members already
+ * written for that archive are removed again and the archive is left in place,
+ * so the next run extracts it once more without duplicating members. Several
+ * extractors may write into the same destination concurrently, because members
+ * are created exclusively and renamed again if another writer took the name
+ * first.
+ */
+final class ArchiveExtractor {
+
+    private final FileOrganizer organizer;
+    private final File destDir;
+    private final ShardLayout shardLayout;
+    private final Map<String, File> targetFolders;
+
+    /**
+     * @param organizer
+     *            Organizer providing folder resolution and conflict renaming
+     * @param destDir
+     *            Destination directory
+     * @param shardLayout
+     *            Layout below the extension folders
+     * @param targetFolders
+     *            Thread-safe cache of folders already created in this run
+     */
+    ArchiveExtractor(FileOrganizer organizer, File destDir, ShardLayout shardLayout, Map<String, File> targetFolders) {
+        this.organizer = organizer;
+        this.destDir = destDir;
+        this.shardLayout = shardLayout;
+        this.targetFolders = targetFolders;
+    }
+
+    /**
+     * @param fileName
+     *            Name of a source file
+     * @return True if the file is a zip or (gzipped) tar archive
+     */
+    static boolean isArchive(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    /**
+     * Streams every regular, non-hidden member of the archive into its
+     * extension folder.
+     *
+     * @param archive
+     *            A zip or (gzipped) tar archive
+     * @param consume
+     *            True to delete the archive once all members were written;
+     *            otherwise it is not modified
+     * @return Number of members written
+     * @throws IOException
+     *             If the archive cannot be read, a member cannot be written or
+     *             the archive cannot be deleted; members written so far are
+     *             removed again
+     */
+    int extract(File archive, boolean consume) throws IOException {
+        List<Path> written = new ArrayList<>();
+        try {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(archive.toPath()), 64 * 1024)) {
+                String name = archive.getName().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".zip")) {
+                    extractZip(in, written);
+                } else if (name.endsWith(".tar")) {
+                    extractTar(archive, in, written);
+                } else {
+                    extractTar(archive, new GZIPInputStream(in, 64 * 1024), written);
+                }
+            }
+            if (consume) {
+                Files.delete(archive.toPath());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Remove every member even if some cannot be, and keep the original failure
+            IOException failure = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+            for (Path path : written) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException deleteFailure) {
+                    failure.addSuppressed(deleteFailure);
+                }
+            }
+            throw failure;
+        }
+        return written.size();
+    }
+
+    private void extractZip(InputStream in, List<Path> written) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            FileTime lastModified = entry.getLastModifiedTime();
+            FileTime lastAccess = entry.getLastAccessTime() != null ? entry.getLastAccessTime() : lastModified;
+            writeMember(entry.getName(), zip, lastModified, lastAccess, entry.getCreationTime(), written);
+        }
+    }
+
+    private void extractTar(File archive, InputStream in, List<Path> written) throws IOException {
+        TarReader tar = new TarReader(in);
+        TarReader.Entry entry;
+        while ((entry = tar.next()) != null) {
+            FileTime lastModified = FileTime.fromMillis(entry.getLastModifiedMillis());
+            writeMember(entry.getName(), tar.entryStream(), lastModified, lastModified, null, written);
+        }
+        if (tar.getSkippedHardLinks() > 0) {
+            System.err.println("Skipped " + tar.getSkippedHardLinks() + " hard link member(s) of archive "
+                    + archive.getName() + "; their data was extracted under the name they link to");
+        }
+    }
+
+    private void writeMember(String entryName, InputStream data, FileTime lastModified, FileTime lastAccess,
+            FileTime creation, List<Path> written) throws IOException {
+        // Flatten to the file name; skip hidden members like the organizer does
+        String fileName = entryName.substring(Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\')) + 1);
+        if (fileName.isEmpty() || fileName.startsWith(".")) {
+            return;
+        }
+
+        long lastModifiedMillis = lastModified != null ? lastModified.toMillis() : System.currentTimeMillis();
+        File targetFolder = organizer.resolveTargetFolder(destDir, fileName, lastModifiedMillis, shardLayout,
+                targetFolders);
+        if (targetFolder == null) {
+            throw new IOException("Failed to create folder for " + fileName);
+        }
+
+        // Create the member exclusively, so a concurrent writer never gets overwritten
+        File destFile = new File(targetFolder, fileName);
+        OutputStream out = null;
+        while (out == null) {
+            if (destFile.exists()) {
+                destFile = organizer.generateUniqueFileName(targetFolder, fileName);
+            }
+            try {
+                out = Files.newOutputStream(destFile.toPath(), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                // Taken between the check and the create; pick the next free name
+            }
+        }
+
+        Path destPath = destFile.toPath();
+        written.add(destPath);
+        try (OutputStream target = out) {
+            data.transferTo(target);
+        }
+
+        // Preserve the member's timestamps
+        if (lastModified != null) {
+            Files.getFileAttributeView(destPath, BasicFileAttributeView.class).setTimes(lastModified, lastAccess,
+                    creation);
+        }
+        System.out.println("Extracted: " + entryName + " -> " + destFile.getPath());
+    }
+}
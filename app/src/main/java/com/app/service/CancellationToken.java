@@ -0,0 +1,23 @@
+package com.app.service;
+
+/**
+ * Cooperative stop signal for an organize run. The organizer checks the token
+ * between files, so a file that is already being moved is always finished
+ * before the run stops.
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /** Requests the run to stop before the next file. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return True if the run should stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -2,13 +2,21 @@ package com.app.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 /**
  * Service class to handle the core functionality of organizing files by
@@ -29,58 +37,359 @@ public class FileOrganizer {
      *             If an I/O error occurs
      */
     public int organizeFiles(File sourceDir, File destDir) throws IOException {
-        // Count successfully moved files
-        int movedFilesCount = 0;
+        return organizeFiles(sourceDir, destDir, new OrganizeOptions());
+    }
 
-        // Track created folders to avoid duplicating folder creation checks
-        Map<String, File> extensionFolders = new HashMap<>();
+    /**
+     * Organizes files by moving them from the source directory to extension-based
+     * folders in the destination directory, using the given settings.
+     *
+     * @param sourceDir
+     *            Source directory containing files to organize
+     * @param destDir
+     *            Destination directory where organized folders will be created
+     * @param options
+     *            Settings for this run, such as the destination shard layout
+     * @return Number of files successfully moved, including archive members
+     * @throws IOException
+     *             If an I/O error occurs
+     */
+    public int organizeFiles(File sourceDir, File destDir, OrganizeOptions options) throws IOException {
+        OrganizeResult result = organize(sourceDir, destDir, options, new OrganizeProgress(), new CancellationToken());
+        return (int) (result.getMoved() + result.getExtracted());
+    }
 
-        // Get all files in the source directory (non-recursive)
-        File[] files = sourceDir.listFiles();
-        if (files == null || files.length == 0) {
-            return 0;
+    /**
+     * Organizes files like {@link #organizeFiles(File, File, OrganizeOptions)},
+     * reporting live progress and stopping early once cancelled or once the time
+     * or file budget of the options is used up. Instances hold no per-run state,
+     * so one organizer can serve several runs concurrently as long as no two of
+     * them share a source or destination directory.
+     *
+     * <p>
+     * The stop conditions are checked between files, so a move that has started
+     * always completes. When a run stops early, the names of the entries it did
+     * not get to are recorded in the source directory and the next run handles
+     * exactly those entries without listing the directory again. Files added to
+     * the source in the meantime are picked up by the run after that. A run
+     * that stops while still listing the directory does not list the rest of
+     * it; the next run lists it again after the recorded entries. A run that
+     * has to stop before it starts, e.g. one cancelled while queued, leaves the
+     * source directory untouched.
+     *
+     * <p>
+     * Listing, attribute reads, destination naming and moves run as separate
+     * stages with their own threads, see {@link OrganizeOptions#getMoveThreads()}
+     * and {@link OrganizeProgress#getStages()}.
+     *
+     * <p>
+     * With {@link OrganizeOptions#isIncremental()}, entries that were evaluated
+     * and left in place, such as directories or files already linked, are
+     * recorded in an index in the source directory and not evaluated again
+     * while they are unchanged. While the source directory itself is unchanged,
+     * the run does not even list it.
+     *
+     * <p>
+     * With {@link OrganizeOptions#isExtractArchives()}, zip and tar archives are
+     * not moved themselves; their members are streamed into the extension
+     * folders after the plain files have been moved, several archives at a time.
+     *
+     * @param sourceDir
+     *            Source directory containing files to organize
+     * @param destDir
+     *            Destination directory where organized folders will be created
+     * @param options
+     *            Settings for this run, such as the destination shard layout
+     * @param progress
+     *            Counters updated while the run progresses
+     * @param cancellation
+     *            Checked before each file; the run stops once it is cancelled
+     * @return What the run did and why it stopped
+     * @throws IOException
+     *             If an I/O error occurs
+     */
+    public OrganizeResult organize(File sourceDir, File destDir, OrganizeOptions options, OrganizeProgress progress,
+            CancellationToken cancellation) throws IOException {
+        long startNanos = System.nanoTime();
+        long maxNanos = options.getMaxDuration() == null ? 0 : options.getMaxDuration().toNanos();
+        OrganizeResult.StopReason early = checkStop(cancellation, startNanos, maxNanos);
+        if (early != null) {
+            return new OrganizeResult(0, 0, 0, 0, 0, 0, 0, early);
         }
 
-        for (File file : files) {
-            // Skip directories and hidden files
-            if (file.isDirectory() || file.getName().startsWith(".")) {
-                continue;
-            }
+        // Track created folders (including shard fan-out folders) so each one is
+        // only checked and created once per run; archive workers share it
+        Map<String, File> targetFolders = new ConcurrentHashMap<>();
+
+        // Link modes fall back to copying across devices; the source directory is
+        // flat, so one check per run covers all of its files
+        MaterializeMode mode = options.getMaterializeMode();
+        Boolean sameDevice = mode == MaterializeMode.MOVE ? null : sameDevice(sourceDir, destDir);
 
-            // Extract the file extension
-            String extension = getFileExtension(file.getName());
-            String folderName = extension.isEmpty() ? "no_extension" : extension;
+        // Continue with the entries a stopped run left behind, or list all files
+        // in the source directory (non-recursive)
+        PendingList pending = readPendingList(sourceDir);
 
-            // Get or create the destination folder for this extension
-            File extensionFolder = extensionFolders.get(folderName);
-            if (extensionFolder == null) {
-                extensionFolder = new File(destDir, folderName);
-                extensionFolders.put(folderName, extensionFolder);
+        // Incremental runs skip entries the index shows unchanged, and skip the
+        // listing altogether while the source directory itself is unchanged
+        SourceIndex index = null;
+        BasicFileAttributes directoryAttrs = null;
+        long snapshotMillis = System.currentTimeMillis();
+        if (options.isIncremental()) {
+            index = readSourceIndex(sourceDir, destDir, options);
+            directoryAttrs = readDirectoryAttributes(sourceDir);
+            if (pending == null && directoryAttrs != null && index.isDirectoryUnchanged(directoryAttrs)) {
+                progress.entriesUnchanged(index.size());
+                return new OrganizeResult(0, 0, 0, 0, 0, 0, index.size(), OrganizeResult.StopReason.COMPLETED);
             }
+        }
+
+        // Enumerate, stat, classify and move the plain files in overlapping stages
+        OrganizePipeline pipeline = new OrganizePipeline(this, sourceDir, destDir, options, progress, cancellation,
+                pending, targetFolders, sameDevice, index, startNanos, maxNanos);
+        pipeline.run();
+        OrganizeResult.StopReason stopReason = pipeline.getStopReason() == null
+                ? OrganizeResult.StopReason.COMPLETED
+                : pipeline.getStopReason();
 
-            // Create the folder if it doesn't exist
-            if (!extensionFolder.exists()) {
-                if (!extensionFolder.mkdir()) {
-                    System.err.println("Failed to create folder: " + extensionFolder.getPath());
-                    continue;
+        // Stream the collected archives' members into their folders
+        List<File> archives = pipeline.getArchives();
+        List<String> names = new ArrayList<>();
+        ArchiveOutcome archiveOutcome = new ArchiveOutcome();
+        if (!archives.isEmpty()) {
+            archiveOutcome = extractArchives(archives, destDir, options, progress, cancellation, startNanos,
+                    maxNanos, targetFolders);
+            for (File archive : archiveOutcome.notStarted) {
+                names.add(archive.getName());
+            }
+            if (index != null && mode != MaterializeMode.MOVE) {
+                for (File archive : archiveOutcome.completed) {
+                    index.record(archive.getName(), pipeline.getArchiveAttributes(archive), null);
                 }
             }
+            if (stopReason == OrganizeResult.StopReason.COMPLETED && archiveOutcome.stopReason != null) {
+                stopReason = archiveOutcome.stopReason;
+            }
+        }
+
+        // Record what is left for the next run, or clear a consumed pending list
+        names.addAll(pipeline.getRemaining());
+        int remaining = names.size();
+        if (remaining > 0) {
+            try {
+                PendingList.write(sourceDir, names, pipeline.isUnlisted());
+            } catch (IOException e) {
+                System.err.println("Failed to record pending files, the next run will list the source directory: "
+                        + e.getMessage());
+            }
+        } else if (pending != null) {
+            PendingList.delete(sourceDir);
+        }
 
-            // Prepare destination file
-            File destFile = new File(extensionFolder, file.getName());
+        // Keep the directory snapshot only if nothing is left to retry
+        long failed = pipeline.getFailed() + archiveOutcome.failed;
+        if (index != null) {
+            try {
+                boolean complete = remaining == 0 && !pipeline.isUnlisted();
+                index.write(sourceDir, complete && failed == 0 ? directoryAttrs : null, snapshotMillis,
+                        complete && (pending == null || pending.isUnlisted()));
+            } catch (IOException e) {
+                System.err.println("Failed to update the source index, the next run evaluates all entries: "
+                        + e.getMessage());
+            }
+        }
 
-            // Handle name conflicts
-            if (destFile.exists()) {
-                destFile = generateUniqueFileName(extensionFolder, file.getName());
+        return new OrganizeResult(pipeline.getMoved(), failed, pipeline.getSkipped(), archiveOutcome.archives,
+                archiveOutcome.members, remaining, pipeline.getUnchanged(), stopReason);
+    }
+
+    /**
+     * Checks whether the run has to stop before starting the next file.
+     *
+     * @return The reason to stop, or null to continue
+     */
+    static OrganizeResult.StopReason checkStop(CancellationToken cancellation, long startNanos,
+            long maxNanos) {
+        if (cancellation.isCancelled()) {
+            return OrganizeResult.StopReason.CANCELLED;
+        }
+        if (maxNanos > 0 && System.nanoTime() - startNanos >= maxNanos) {
+            return OrganizeResult.StopReason.TIME_BUDGET;
+        }
+        return null;
+    }
+
+    /** Counters of the archive phase of a run. */
+    private static final class ArchiveOutcome {
+        private long archives;
+        private long members;
+        private long failed;
+        private final List<File> notStarted = new ArrayList<>();
+        private final List<File> completed = new ArrayList<>();
+        private OrganizeResult.StopReason stopReason;
+    }
+
+    /**
+     * Unpacks archives on a pool of {@link OrganizeOptions#getArchiveThreads()}
+     * workers. In {@link MaterializeMode#MOVE} mode each archive is deleted once
+     * all of its members were written; the link modes keep the source intact.
+     * Archives not yet started when the run is cancelled or out of time are
+     * reported as not started.
+     */
+    private ArchiveOutcome extractArchives(List<File> archives, File destDir, OrganizeOptions options,
+            OrganizeProgress progress, CancellationToken cancellation, long startNanos, long maxNanos,
+            Map<String, File> targetFolders) throws IOException {
+        ArchiveExtractor extractor = new ArchiveExtractor(this, destDir, options.getShardLayout(), targetFolders);
+        ArchiveOutcome outcome = new ArchiveOutcome();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(options.getArchiveThreads(), archives.size()));
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (File archive : archives) {
+                tasks.add(workers.submit(() -> {
+                    OrganizeResult.StopReason stop = checkStop(cancellation, startNanos, maxNanos);
+                    if (stop != null) {
+                        synchronized (outcome) {
+                            outcome.notStarted.add(archive);
+                            outcome.stopReason = stop;
+                        }
+                        return;
+                    }
+                    try {
+                        int members = extractor.extract(archive,
+                                options.getMaterializeMode() == MaterializeMode.MOVE);
+                        synchronized (outcome) {
+                            outcome.archives++;
+                            outcome.members += members;
+                            outcome.completed.add(archive);
+                        }
+                        progress.archiveExtracted(members);
+                    } catch (IOException e) {
+                        System.err.println("Failed to extract archive " + archive.getName() + ": " + e.getMessage());
+                        synchronized (outcome) {
+                            outcome.failed++;
+                        }
+                        progress.fileFailed();
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting archives", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Archive extraction failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return outcome;
+    }
+
+    /**
+     * Resolves the folder a file belongs in, including its shard folders, and
+     * creates it on first use.
+     *
+     * @param destDir
+     *            Destination directory
+     * @param fileName
+     *            Name of the file
+     * @param lastModifiedMillis
+     *            Last modified time of the file, used by date sharding
+     * @param shardLayout
+     *            Layout below the extension folders
+     * @param targetFolders
+     *            Cache of folders already created in this run
+     * @return The folder, or null if it could not be created
+     */
+    File resolveTargetFolder(File destDir, String fileName, long lastModifiedMillis, ShardLayout shardLayout,
+            Map<String, File> targetFolders) {
+        return resolveTargetFolder(destDir, targetFolderName(fileName, lastModifiedMillis, shardLayout),
+                targetFolders);
+    }
+
+    /**
+     * Names the folder a file belongs in, relative to the destination directory,
+     * without creating it.
+     *
+     * @param fileName
+     *            Name of the file
+     * @param lastModifiedMillis
+     *            Last modified time of the file, used by date sharding
+     * @param shardLayout
+     *            Layout below the extension folders
+     * @return The extension folder, followed by the shard folders if any
+     */
+    String targetFolderName(String fileName, long lastModifiedMillis, ShardLayout shardLayout) {
+        // Extract the file extension
+        String extension = getFileExtension(fileName);
+        String folderName = extension.isEmpty() ? "no_extension" : extension;
+
+        // Append the shard path below the extension folder, if any
+        if (shardLayout.isSharded()) {
+            folderName += "/" + shardLayout.shardPath(fileName, lastModifiedMillis);
+        }
+        return folderName;
+    }
 
-            // Move the file and preserve timestamps
-            if (moveFileWithAttributes(file, destFile)) {
-                movedFilesCount++;
+    /**
+     * Resolves a folder named by
+     * {@link #targetFolderName(String, long, ShardLayout)} and creates it on
+     * first use.
+     *
+     * @return The folder, or null if it could not be created
+     */
+    File resolveTargetFolder(File destDir, String folderName, Map<String, File> targetFolders) {
+        File targetFolder = targetFolders.get(folderName);
+        if (targetFolder == null) {
+            targetFolder = new File(destDir, folderName);
+            // Another thread may create the same folder concurrently
+            if (!targetFolder.isDirectory() && !targetFolder.mkdirs() && !targetFolder.isDirectory()) {
+                System.err.println("Failed to create folder: " + targetFolder.getPath());
+                return null;
             }
+            targetFolders.put(folderName, targetFolder);
         }
+        return targetFolder;
+    }
 
-        return movedFilesCount;
+    /**
+     * Reads the pending list left by a stopped run, falling back to a full
+     * listing if it cannot be read.
+     */
+    private PendingList readPendingList(File sourceDir) {
+        try {
+            return PendingList.read(sourceDir);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable pending list: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the source index of an incremental run, starting over with an empty
+     * one if it cannot be read.
+     */
+    private static SourceIndex readSourceIndex(File sourceDir, File destDir, OrganizeOptions options) {
+        try {
+            return SourceIndex.read(sourceDir, destDir, options.getMaterializeMode(), options.getShardLayout());
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable source index: " + e.getMessage());
+            return SourceIndex.empty(destDir, options.getMaterializeMode(), options.getShardLayout());
+        }
+    }
+
+    /**
+     * Reads the attributes of the source directory for the index snapshot.
+     *
+     * @return The attributes, or null if they cannot be read
+     */
+    private static BasicFileAttributes readDirectoryAttributes(File sourceDir) {
+        try {
+            return Files.readAttributes(sourceDir.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     /**
@@ -107,7 +416,23 @@ public class FileOrganizer {
      *            Original file name
      * @return A File object with a unique name
      */
-    private File generateUniqueFileName(File folder, String fileName) {
+    File generateUniqueFileName(File folder, String fileName) {
+        return generateUniqueFileName(folder, fileName, File::exists);
+    }
+
+    /**
+     * Generates a unique filename when a name conflict occurs, also avoiding
+     * names that are taken by files not yet written.
+     *
+     * @param folder
+     *            The folder where the file will be placed
+     * @param fileName
+     *            Original file name
+     * @param taken
+     *            Tells whether a candidate name is already in use
+     * @return A File object with a unique name
+     */
+    File generateUniqueFileName(File folder, String fileName, Predicate<File> taken) {
         String baseName;
         String extension;
 
@@ -128,7 +453,7 @@ public class FileOrganizer {
         do {
             newFile = new File(folder, baseName + "_" + counter + extension);
             counter++;
-        } while (newFile.exists());
+        } while (taken.test(newFile));
 
         return newFile;
     }
@@ -140,32 +465,122 @@ public class FileOrganizer {
      *            Source file
      * @param dest
      *            Destination file
+     * @param attrs
+     *            Attributes of the source file read beforehand, or null to read
+     *            them now
+     * @param mode
+     *            Whether to move, hard link or reflink the file
+     * @param sameDevice
+     *            Whether source and destination are on the same device, or null
+     *            if unknown; link modes copy when they are not
      * @return True if the move was successful
      */
-    private boolean moveFileWithAttributes(File source, File dest) {
+    boolean moveFileWithAttributes(File source, File dest, BasicFileAttributes attrs, MaterializeMode mode,
+            Boolean sameDevice) {
         try {
             Path sourcePath = source.toPath();
             Path destPath = dest.toPath();
 
             // Get file attributes before moving
-            BasicFileAttributes attrs = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+            if (attrs == null) {
+                attrs = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+            }
             FileTime creationTime = attrs.creationTime();
             FileTime lastModifiedTime = attrs.lastModifiedTime();
             FileTime lastAccessTime = attrs.lastAccessTime();
 
-            // Move the file
-            Files.move(sourcePath, destPath, StandardCopyOption.REPLACE_EXISTING);
+            // Move, link or clone the file
+            String action;
+            if (mode == MaterializeMode.MOVE) {
+                Files.move(sourcePath, destPath, StandardCopyOption.REPLACE_EXISTING);
+                action = "Moved";
+            } else if (Boolean.FALSE.equals(sameDevice)) {
+                Files.copy(sourcePath, destPath);
+                action = "Copied";
+            } else if (mode == MaterializeMode.HARDLINK) {
+                if (createLinkOrCopy(sourcePath, destPath, sameDevice)) {
+                    // A hard link shares the source's inode, timestamps included
+                    System.out.println("Linked: " + source.getName() + " -> " + dest.getPath());
+                    return true;
+                }
+                action = "Copied";
+            } else {
+                cloneFile(sourcePath, destPath);
+                action = "Cloned";
+            }
 
             // Preserve the timestamps
             Files.setAttribute(destPath, "creationTime", creationTime);
             Files.setAttribute(destPath, "lastModifiedTime", lastModifiedTime);
             Files.setAttribute(destPath, "lastAccessTime", lastAccessTime);
 
-            System.out.println("Moved: " + source.getName() + " -> " + dest.getPath());
+            System.out.println(action + ": " + source.getName() + " -> " + dest.getPath());
             return true;
         } catch (IOException e) {
-            System.err.println("Failed to move file " + source.getName() + ": " + e.getMessage());
+            System.err.println("Failed to " + mode.name().toLowerCase() + " file " + source.getName() + ": "
+                    + e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Creates a hard link, or copies the file if the devices are unknown and the
+     * link is refused.
+     *
+     * @return True if a link was created, false if the file was copied
+     */
+    private static boolean createLinkOrCopy(Path source, Path dest, Boolean sameDevice) throws IOException {
+        try {
+            Files.createLink(dest, source);
+            return true;
+        } catch (FileSystemException e) {
+            if (sameDevice != null) {
+                throw e;
+            }
+            Files.copy(source, dest);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a copy-on-write clone of a file. The JDK has no {@code FICLONE}
+     * binding, so this delegates to {@code cp --reflink=always}, which fails
+     * instead of silently copying data on filesystems without reflink support.
+     * That option only exists in GNU coreutils, so the mode works on Linux only.
+     * Each clone starts a {@code cp} process, which costs far more than the
+     * clone itself and dominates the run time for many small files. Files are
+     * not batched into one {@code cp} call because each one may get its own
+     * conflict-renamed destination name.
+     */
+    private static void cloneFile(Path source, Path dest) throws IOException {
+        Process process = new ProcessBuilder("cp", "--reflink=always", "--", source.toString(), dest.toString())
+                .redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes()).trim();
+        try {
+            if (process.waitFor() != 0) {
+                // cp leaves an empty destination behind when the clone is refused
+                Files.deleteIfExists(dest);
+                throw new IOException(output.isEmpty() ? "cp --reflink=always failed" : output);
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while cloning " + source, e);
+        }
+    }
+
+    /**
+     * Checks whether two paths are on the same device.
+     *
+     * @return The answer, or null if the platform does not expose device ids
+     */
+    private static Boolean sameDevice(File first, File second) {
+        try {
+            Object firstDevice = Files.getAttribute(first.toPath(), "unix:dev");
+            Object secondDevice = Files.getAttribute(second.toPath(), "unix:dev");
+            return firstDevice.equals(secondDevice);
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package com.app.service;
+
+/**
+ * How a file is placed into its organized folder. The link modes leave the
+ * source directory untouched, so the original and the organized layout exist
+ * side by side without copying file data.
+ */
+public enum MaterializeMode {
+    /** Move the file; the source directory is emptied. */
+    MOVE,
+    /**
+     * Create a hard link to the source file. Both names share the same data and
+     * metadata; across devices the file is copied instead.
+     */
+    HARDLINK,
+    /**
+     * Create a copy-on-write clone ({@code FICLONE}) on filesystems that support
+     * it, such as btrfs and XFS; across devices the file is copied instead.
+     * Clones are made by running GNU {@code cp --reflink=always} once per file,
+     * so this mode is Linux only and slower than the others for many small
+     * files.
+     */
+    REFLINK
+}
@@ -0,0 +1,43 @@
+package com.app.service;
+
+/**
+ * Escaping of file names for the line-based files kept in the source directory,
+ * the pending list and the source index. Backslashes, line breaks and tabs are
+ * escaped with a backslash, and so is a leading {@code #}, so a name never
+ * spans lines, splits a tab-separated line or looks like a marker line.
+ */
+final class NameEscaping {
+
+    private NameEscaping() {
+    }
+
+    /**
+     * @param name
+     *            A file name
+     * @return The name as it is written on one line
+     */
+    static String escape(String name) {
+        String escaped = name.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r")
+                .replace("\t", "\\t");
+        return escaped.startsWith("#") ? "\\" + escaped : escaped;
+    }
+
+    /**
+     * @param line
+     *            A name as written by {@link #escape(String)}
+     * @return The original name
+     */
+    static String unescape(String line) {
+        StringBuilder name = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                name.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next == 't' ? '\t' : next);
+            } else {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+}
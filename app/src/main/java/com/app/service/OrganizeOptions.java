@@ -0,0 +1,261 @@
+package com.app.service;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Settings for a single organize run. A fresh instance describes the default
+ * behaviour: files are moved, every extension goes into one flat folder and the
+ * run continues until all files are handled.
+ */
+public class OrganizeOptions {
+
+    private ShardLayout shardLayout = ShardLayout.none();
+    private Duration maxDuration;
+    private long maxFiles;
+    private boolean extractArchives;
+    private int archiveThreads = 4;
+    private MaterializeMode materializeMode = MaterializeMode.MOVE;
+    private int prefetchThreads = 4;
+    private int classifyThreads = 2;
+    private int moveThreads = 4;
+    private int queueCapacity = 1024;
+    private boolean incremental;
+
+    public ShardLayout getShardLayout() {
+        return shardLayout;
+    }
+
+    /**
+     * Sets how files are spread below their extension folder.
+     *
+     * @param shardLayout
+     *            Destination shard layout
+     * @return This options instance
+     */
+    public OrganizeOptions setShardLayout(ShardLayout shardLayout) {
+        this.shardLayout = Objects.requireNonNull(shardLayout, "shardLayout");
+        return this;
+    }
+
+    /**
+     * @return Time after which the run stops starting new moves, or null for no
+     *         limit
+     */
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Limits how long a run keeps starting new moves.
+     *
+     * @param maxDuration
+     *            Time budget, or null for no limit
+     * @return This options instance
+     */
+    public OrganizeOptions setMaxDuration(Duration maxDuration) {
+        if (maxDuration != null && (maxDuration.isNegative() || maxDuration.isZero())) {
+            throw new IllegalArgumentException("Maximum duration must be positive");
+        }
+        this.maxDuration = maxDuration;
+        return this;
+    }
+
+    /**
+     * @return Maximum number of files a run attempts to move, or 0 for no limit
+     */
+    public long getMaxFiles() {
+        return maxFiles;
+    }
+
+    /**
+     * Limits how many files a run attempts to move.
+     *
+     * @param maxFiles
+     *            File budget, or 0 for no limit
+     * @return This options instance
+     */
+    public OrganizeOptions setMaxFiles(long maxFiles) {
+        if (maxFiles < 0) {
+            throw new IllegalArgumentException("Maximum number of files must not be negative");
+        }
+        this.maxFiles = maxFiles;
+        return this;
+    }
+
+    /**
+     * @return True if members of zip and tar archives are organized instead of
+     *         the archives themselves
+     */
+    public boolean isExtractArchives() {
+        return extractArchives;
+    }
+
+    /**
+     * Organizes the members of zip, tar, tar.gz and tgz archives directly into
+     * extension folders instead of moving the archives.
+     *
+     * @param extractArchives
+     *            True to stream archive members to their folders
+     * @return This options instance
+     */
+    public OrganizeOptions setExtractArchives(boolean extractArchives) {
+        this.extractArchives = extractArchives;
+        return this;
+    }
+
+    /**
+     * @return Number of archives extracted in parallel
+     */
+    public int getArchiveThreads() {
+        return archiveThreads;
+    }
+
+    /**
+     * Sets how many archives are extracted in parallel.
+     *
+     * @param archiveThreads
+     *            Number of extraction workers
+     * @return This options instance
+     */
+    public OrganizeOptions setArchiveThreads(int archiveThreads) {
+        if (archiveThreads < 1) {
+            throw new IllegalArgumentException("Number of archive threads must be at least 1");
+        }
+        this.archiveThreads = archiveThreads;
+        return this;
+    }
+
+    public MaterializeMode getMaterializeMode() {
+        return materializeMode;
+    }
+
+    /**
+     * Sets whether files are moved, or hard linked or reflinked so the source
+     * layout stays intact.
+     *
+     * @param materializeMode
+     *            How files are placed into their folders
+     * @return This options instance
+     */
+    public OrganizeOptions setMaterializeMode(MaterializeMode materializeMode) {
+        this.materializeMode = Objects.requireNonNull(materializeMode, "materializeMode");
+        return this;
+    }
+
+    /**
+     * @return Number of threads reading file attributes ahead of the moves
+     */
+    public int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    /**
+     * Sets how many threads read file attributes ahead of the moves.
+     *
+     * @param prefetchThreads
+     *            Number of prefetch workers
+     * @return This options instance
+     */
+    public OrganizeOptions setPrefetchThreads(int prefetchThreads) {
+        if (prefetchThreads < 1) {
+            throw new IllegalArgumentException("Number of prefetch threads must be at least 1");
+        }
+        this.prefetchThreads = prefetchThreads;
+        return this;
+    }
+
+    /**
+     * @return Number of threads picking destination names
+     */
+    public int getClassifyThreads() {
+        return classifyThreads;
+    }
+
+    /**
+     * Sets how many threads pick destination folders and names. Files are
+     * partitioned by target folder, so each folder is only ever named by one
+     * thread and conflict renaming never races.
+     *
+     * @param classifyThreads
+     *            Number of classify workers
+     * @return This options instance
+     */
+    public OrganizeOptions setClassifyThreads(int classifyThreads) {
+        if (classifyThreads < 1) {
+            throw new IllegalArgumentException("Number of classify threads must be at least 1");
+        }
+        this.classifyThreads = classifyThreads;
+        return this;
+    }
+
+    /**
+     * @return Number of files moved in parallel
+     */
+    public int getMoveThreads() {
+        return moveThreads;
+    }
+
+    /**
+     * Sets how many files are moved in parallel.
+     *
+     * @param moveThreads
+     *            Number of move workers
+     * @return This options instance
+     */
+    public OrganizeOptions setMoveThreads(int moveThreads) {
+        if (moveThreads < 1) {
+            throw new IllegalArgumentException("Number of move threads must be at least 1");
+        }
+        this.moveThreads = moveThreads;
+        return this;
+    }
+
+    /**
+     * @return Number of entries each pipeline stage may buffer for the next
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Limits how many entries may wait between two pipeline stages. A full queue
+     * blocks the stage feeding it, which bounds memory use on huge directories.
+     *
+     * @param queueCapacity
+     *            Capacity of each queue between stages
+     * @return This options instance
+     */
+    public OrganizeOptions setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * @return True if entries an earlier run evaluated are skipped while they are
+     *         unchanged
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Keeps an index of evaluated entries in the source directory, so later runs
+     * only look at entries that were added or changed since. While the source
+     * directory itself is unchanged, a run does not list it at all; otherwise
+     * each entry still costs one attribute read to compare it with the index.
+     * In {@link MaterializeMode#MOVE} mode only entries left in place, such as
+     * subdirectories, are indexed, since moved files leave the source anyway.
+     *
+     * @param incremental
+     *            True to use and update the source index
+     * @return This options instance
+     */
+    public OrganizeOptions setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+}
@@ -0,0 +1,592 @@
+package com.app.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Organizes the plain files of one run in four stages connected by bounded
+ * queues, so that listing, attribute reads, conflict resolution and moves of
+ * different files overlap:
+ *
+ * <ol>
+ * <li>enumerate: lists the source directory, or reads the pending list, and
+ * skips hidden names; stops listing as soon as the run has to stop</li>
+ * <li>prefetch: reads the attributes of each entry and skips directories,
+ * entries that vanished and entries the source index shows unchanged</li>
+ * <li>classify: applies the file budget, sets archives aside, creates the
+ * target folder and picks a free destination name</li>
+ * <li>move: re-reads the attributes, moves or links the file and restores its
+ * timestamps</li>
+ * </ol>
+ *
+ * A full queue blocks the stage feeding it, so a slow stage holds back the
+ * stages before it instead of buffering the whole directory. Each classify
+ * worker has its own queue, and the prefetch stage routes every file by its
+ * target folder, so all names in one folder are picked by the same worker and
+ * a destination name reserved for a move still in flight is never handed out
+ * twice. The move stage reads the attributes again right before the move, so
+ * a file changed while it waited in the queues keeps its current timestamps.
+ * Once the run has to stop, every stage keeps draining its queue but records
+ * the entries as remaining instead of handling them.
+ */
+final class OrganizePipeline {
+
+    /** Marks the end of a queue; each worker passes it on to its siblings. */
+    private static final Entry END = new Entry(null);
+
+    private final FileOrganizer organizer;
+    private final File sourceDir;
+    private final File destDir;
+    private final OrganizeOptions options;
+    private final OrganizeProgress progress;
+    private final CancellationToken cancellation;
+    private final PendingList pending;
+    private final Map<String, File> targetFolders;
+    private final Boolean sameDevice;
+    private final SourceIndex index;
+    private final long startNanos;
+    private final long maxNanos;
+
+    private final BlockingQueue<Entry> listed;
+    private final List<BlockingQueue<Entry>> prefetched;
+    private final BlockingQueue<Entry> classified;
+    private final StageStats enumerateStats;
+    private final StageStats prefetchStats;
+    private final StageStats classifyStats;
+    private final StageStats moveStats;
+
+    private final AtomicReference<OrganizeResult.StopReason> stopReason = new AtomicReference<>();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final Queue<String> remaining = new ConcurrentLinkedQueue<>();
+    private volatile boolean unlisted;
+    private final Set<String> reservedNames = ConcurrentHashMap.newKeySet();
+    private final Map<File, BasicFileAttributes> archives = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicLong admitted = new AtomicLong();
+
+    /** An entry on its way through the stages; later stages fill in more fields. */
+    private static final class Entry {
+        private final Path path;
+        private BasicFileAttributes attrs;
+        private String folderName;
+        private int partition;
+        private File destFile;
+        private String previousDestination;
+        private File staleFile;
+
+        Entry(Path path) {
+            this.path = path;
+        }
+
+        String name() {
+            return path.getFileName().toString();
+        }
+    }
+
+    /** The work a stage does for one entry. */
+    private interface Step {
+        /**
+         * @return True to hand the entry to the next stage
+         */
+        boolean handle(Entry entry);
+    }
+
+    OrganizePipeline(FileOrganizer organizer, File sourceDir, File destDir, OrganizeOptions options,
+            OrganizeProgress progress, CancellationToken cancellation, PendingList pending,
+            Map<String, File> targetFolders, Boolean sameDevice, SourceIndex index, long startNanos,
+            long maxNanos) {
+        this.organizer = organizer;
+        this.sourceDir = sourceDir;
+        this.destDir = destDir;
+        this.options = options;
+        this.progress = progress;
+        this.cancellation = cancellation;
+        this.pending = pending;
+        this.targetFolders = targetFolders;
+        this.sameDevice = sameDevice;
+        this.index = index;
+        this.startNanos = startNanos;
+        this.maxNanos = maxNanos;
+
+        int capacity = options.getQueueCapacity();
+        listed = new ArrayBlockingQueue<>(capacity);
+        prefetched = new ArrayList<>();
+        for (int i = 0; i < options.getClassifyThreads(); i++) {
+            prefetched.add(new ArrayBlockingQueue<>(capacity));
+        }
+        classified = new ArrayBlockingQueue<>(capacity);
+        long now = System.nanoTime();
+        enumerateStats = new StageStats("enumerate", 1, List.of(), now);
+        prefetchStats = new StageStats("prefetch", options.getPrefetchThreads(), List.of(listed), now);
+        classifyStats = new StageStats("classify", options.getClassifyThreads(), prefetched, now);
+        moveStats = new StageStats("move", options.getMoveThreads(), List.of(classified), now);
+        progress.setStages(List.of(enumerateStats, prefetchStats, classifyStats, moveStats));
+    }
+
+    /**
+     * Runs all stages to completion.
+     *
+     * @throws IOException
+     *             If the run was interrupted or a stage failed unexpectedly
+     */
+    void run() throws IOException {
+        int prefetchThreads = options.getPrefetchThreads();
+        int classifyThreads = options.getClassifyThreads();
+        int moveThreads = options.getMoveThreads();
+        ExecutorService workers = Executors.newFixedThreadPool(1 + prefetchThreads + classifyThreads + moveThreads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(workers.submit(() -> {
+                enumerate();
+                return null;
+            }));
+            AtomicInteger activePrefetchers = new AtomicInteger(prefetchThreads);
+            for (int i = 0; i < prefetchThreads; i++) {
+                tasks.add(workers.submit(() -> {
+                    runStage(listed, prefetched, prefetchStats, classifyStats, activePrefetchers, this::prefetch);
+                    return null;
+                }));
+            }
+            AtomicInteger activeClassifiers = new AtomicInteger(classifyThreads);
+            for (BlockingQueue<Entry> input : prefetched) {
+                tasks.add(workers.submit(() -> {
+                    runStage(input, List.of(classified), classifyStats, moveStats, activeClassifiers,
+                            this::classify);
+                    return null;
+                }));
+            }
+            AtomicInteger activeMovers = new AtomicInteger(moveThreads);
+            for (int i = 0; i < moveThreads; i++) {
+                tasks.add(workers.submit(() -> {
+                    runStage(classified, List.of(), moveStats, null, activeMovers, this::move);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while organizing files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Organizing files failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    long getMoved() {
+        return moved.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    long getSkipped() {
+        return skipped.get();
+    }
+
+    long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return Archives set aside for extraction, in the order they were found
+     */
+    List<File> getArchives() {
+        synchronized (archives) {
+            return new ArrayList<>(archives.keySet());
+        }
+    }
+
+    /**
+     * @return Attributes of an archive read by the prefetch stage
+     */
+    BasicFileAttributes getArchiveAttributes(File archive) {
+        return archives.get(archive);
+    }
+
+    /**
+     * @return Names of the entries the run did not get to
+     */
+    List<String> getRemaining() {
+        return new ArrayList<>(remaining);
+    }
+
+    /**
+     * @return True if the run stopped before the source directory was listed to
+     *         the end, so the remaining names are not all that is left
+     */
+    boolean isUnlisted() {
+        return unlisted;
+    }
+
+    /**
+     * @return Why the run stopped, or null if all entries were handled
+     */
+    OrganizeResult.StopReason getStopReason() {
+        return stopReason.get();
+    }
+
+    /**
+     * Checks whether the run has to stop, remembering the first reason found.
+     *
+     * @param admitted
+     *            True for entries already counted against the file budget, which
+     *            are still handled once the budget is used up
+     */
+    private boolean stopped(boolean admitted) {
+        OrganizeResult.StopReason current = stopReason.get();
+        if (current != null && !(admitted && current == OrganizeResult.StopReason.FILE_BUDGET)) {
+            return true;
+        }
+        OrganizeResult.StopReason stop = FileOrganizer.checkStop(cancellation, startNanos, maxNanos);
+        if (stop == null) {
+            return false;
+        }
+        stopReason.compareAndSet(null, stop);
+        return true;
+    }
+
+    /**
+     * Feeds the pending names, then the entries of the source directory if
+     * there is no pending list or it was not listed to the end, to the prefetch
+     * stage. Once the run has to stop, the pending names not yet fed are kept
+     * as remaining and the listing ends, so a stopped run never lists the rest
+     * of a large directory.
+     */
+    private void enumerate() throws InterruptedException {
+        try {
+            Set<String> pendingNames = Set.of();
+            if (pending != null) {
+                Iterator<String> names = pending.getNames().iterator();
+                long start = System.nanoTime();
+                while (names.hasNext()) {
+                    if (stopped(false)) {
+                        names.forEachRemaining(remaining::add);
+                        unlisted = pending.isUnlisted();
+                        return;
+                    }
+                    start = enumerated(sourceDir.toPath().resolve(names.next()), start);
+                }
+                if (!pending.isUnlisted()) {
+                    return;
+                }
+                pendingNames = new HashSet<>(pending.getNames());
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDir.toPath())) {
+                Iterator<Path> paths = stream.iterator();
+                long start = System.nanoTime();
+                while (paths.hasNext()) {
+                    if (stopped(false)) {
+                        unlisted = true;
+                        return;
+                    }
+                    Path path = paths.next();
+                    if (!pendingNames.contains(path.getFileName().toString())) {
+                        start = enumerated(path, start);
+                    }
+                }
+            } catch (NotDirectoryException | NoSuchFileException e) {
+                // Nothing to organize
+            } catch (IOException | DirectoryIteratorException e) {
+                System.err.println("Failed to list source directory: " + e.getMessage());
+            }
+        } finally {
+            listed.put(END);
+            enumerateStats.finished();
+        }
+    }
+
+    /**
+     * Handles one listed entry.
+     *
+     * @param start
+     *            Time the enumerator started working on this entry
+     * @return Time the enumerator starts working on the next entry
+     */
+    private long enumerated(Path path, long start) throws InterruptedException {
+        progress.addEntries(1);
+        if (path.getFileName().toString().startsWith(".")) {
+            skipped.incrementAndGet();
+            progress.entrySkipped();
+        } else {
+            Entry entry = new Entry(path);
+            enumerateStats.entryHandled(System.nanoTime() - start);
+            listed.put(entry);
+            prefetchStats.entryQueued();
+            return System.nanoTime();
+        }
+        enumerateStats.entryHandled(System.nanoTime() - start);
+        return System.nanoTime();
+    }
+
+    /**
+     * Runs one worker of a stage until its input queue ends. The last worker of
+     * the stage to finish ends the output queues.
+     *
+     * @param outputs
+     *            Queues of the next stage, empty for the last stage; with
+     *            several, each entry goes to the one its partition selects
+     */
+    private void runStage(BlockingQueue<Entry> input, List<BlockingQueue<Entry>> outputs, StageStats stats,
+            StageStats nextStats, AtomicInteger activeWorkers, Step step) throws InterruptedException {
+        while (true) {
+            Entry entry = input.take();
+            if (entry == END) {
+                input.put(END);
+                if (activeWorkers.decrementAndGet() == 0) {
+                    for (BlockingQueue<Entry> output : outputs) {
+                        output.put(END);
+                    }
+                    stats.finished();
+                }
+                return;
+            }
+
+            // Entries that reached the last stage were admitted by the classifier
+            long start = System.nanoTime();
+            boolean forward;
+            if (stopped(outputs.isEmpty())) {
+                remaining.add(entry.name());
+                forward = false;
+            } else {
+                try {
+                    forward = step.handle(entry);
+                } catch (RuntimeException e) {
+                    // Keep the worker alive, or the stages before it would block
+                    System.err.println("Failed to organize " + entry.name() + ": " + e);
+                    failed.incrementAndGet();
+                    progress.fileFailed();
+                    forward = false;
+                }
+            }
+            stats.entryHandled(System.nanoTime() - start);
+            if (forward) {
+                outputs.get(entry.partition % outputs.size()).put(entry);
+                nextStats.entryQueued();
+            }
+        }
+    }
+
+    /**
+     * Reads the attributes the later stages need, skipping directories and
+     * entries the source index shows unchanged, and routes each file to the
+     * classify worker that owns its target folder.
+     */
+    private boolean prefetch(Entry entry) {
+        try {
+            entry.attrs = Files.readAttributes(entry.path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Moved or deleted since it was listed
+            skipped.incrementAndGet();
+            progress.entrySkipped();
+            return false;
+        } catch (IOException e) {
+            System.err.println("Failed to read attributes of " + entry.name() + ": " + e.getMessage());
+            failed.incrementAndGet();
+            progress.fileFailed();
+            return false;
+        }
+        if (index != null) {
+            if (index.isUnchanged(entry.name(), entry.attrs)) {
+                unchanged.incrementAndGet();
+                progress.entriesUnchanged(1);
+                return false;
+            }
+            entry.previousDestination = index.changedDestination(entry.name());
+        }
+        if (entry.attrs.isDirectory()) {
+            if (index != null) {
+                index.record(entry.name(), entry.attrs, null);
+            }
+            skipped.incrementAndGet();
+            progress.entrySkipped();
+            return false;
+        }
+        ShardLayout shardLayout = options.getShardLayout();
+        long lastModified = shardLayout.getType() == ShardLayout.Type.MTIME
+                ? entry.attrs.lastModifiedTime().toMillis()
+                : 0L;
+        entry.folderName = organizer.targetFolderName(entry.name(), lastModified, shardLayout);
+        entry.partition = Math.floorMod(entry.folderName.hashCode(), prefetched.size());
+        return true;
+    }
+
+    /** Applies the file budget and picks the destination of a file. */
+    private boolean classify(Entry entry) {
+        if (options.getMaxFiles() > 0 && admitted.incrementAndGet() > options.getMaxFiles()) {
+            stopReason.compareAndSet(null, OrganizeResult.StopReason.FILE_BUDGET);
+            remaining.add(entry.name());
+            return false;
+        }
+
+        // Archives are unpacked into the extension folders after the pipeline
+        String name = entry.name();
+        if (options.isExtractArchives() && ArchiveExtractor.isArchive(name)) {
+            archives.put(entry.path.toFile(), entry.attrs);
+            return false;
+        }
+
+        // Get or lazily create the destination folder
+        File targetFolder = organizer.resolveTargetFolder(destDir, entry.folderName, targetFolders);
+        if (targetFolder == null) {
+            failed.incrementAndGet();
+            progress.fileFailed();
+            return false;
+        }
+
+        // A changed file is done if the link of the previous run still holds
+        // it, e.g. after an edit in place. Otherwise that link is stale and is
+        // replaced, in place if the file still belongs in the same folder
+        boolean linkMode = options.getMaterializeMode() != MaterializeMode.MOVE;
+        if (linkMode && entry.previousDestination != null) {
+            File previous = new File(destDir, entry.previousDestination);
+            if (previous.exists()) {
+                if (isMaterialized(entry, previous)) {
+                    if (index != null) {
+                        index.record(name, entry.attrs, previous);
+                    }
+                    unchanged.incrementAndGet();
+                    progress.entriesUnchanged(1);
+                    return false;
+                }
+                if (reservedNames.add(previous.getPath())) {
+                    entry.staleFile = previous;
+                    if (targetFolder.equals(previous.getParentFile())) {
+                        entry.destFile = previous;
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // Handle name conflicts with existing files and with moves in flight. In
+        // the link modes a name already holding this file is not a conflict: an
+        // earlier run materialized it there, so the entry is done
+        Predicate<File> taken = file -> reservedNames.contains(file.getPath())
+                || (file.exists() && !(linkMode && isMaterialized(entry, file)));
+        File destFile = new File(targetFolder, name);
+        if (taken.test(destFile)) {
+            destFile = organizer.generateUniqueFileName(targetFolder, name, taken);
+        }
+        if (linkMode && destFile.exists()) {
+            if (index != null) {
+                index.record(name, entry.attrs, destFile);
+            }
+            if (entry.staleFile != null) {
+                reservedNames.remove(entry.staleFile.getPath());
+            }
+            unchanged.incrementAndGet();
+            progress.entriesUnchanged(1);
+            return false;
+        }
+        reservedNames.add(destFile.getPath());
+        entry.destFile = destFile;
+        return true;
+    }
+
+    /**
+     * Checks whether a destination file already is the materialized source
+     * entry: the same file for a hard link, or a clone or copy with the same
+     * size, modified time and content.
+     */
+    private static boolean isMaterialized(Entry entry, File destFile) {
+        try {
+            Path destPath = destFile.toPath();
+            if (Files.isSameFile(entry.path, destPath)) {
+                return true;
+            }
+            BasicFileAttributes destAttrs = Files.readAttributes(destPath, BasicFileAttributes.class);
+            return destAttrs.isRegularFile() && destAttrs.size() == entry.attrs.size()
+                    && destAttrs.lastModifiedTime().equals(entry.attrs.lastModifiedTime())
+                    && Files.mismatch(entry.path, destPath) == -1;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Moves a file to the destination picked for it, first removing the stale
+     * link of a changed file. The attributes are read again first, since the
+     * file may have been modified while it was queued.
+     */
+    private boolean move(Entry entry) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(entry.path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Moved or deleted since it was prefetched
+            skipped.incrementAndGet();
+            progress.entrySkipped();
+            release(entry);
+            return false;
+        } catch (IOException e) {
+            System.err.println("Failed to read attributes of " + entry.name() + ": " + e.getMessage());
+            attrs = null;
+        }
+        if (attrs != null && entry.staleFile != null) {
+            try {
+                Files.deleteIfExists(entry.staleFile.toPath());
+            } catch (IOException e) {
+                System.err.println("Failed to replace stale link " + entry.staleFile.getPath() + ": "
+                        + e.getMessage());
+                attrs = null;
+            }
+        }
+        if (attrs != null && organizer.moveFileWithAttributes(entry.path.toFile(), entry.destFile, attrs,
+                options.getMaterializeMode(), sameDevice)) {
+            // Linked files stay in the source; remember them so they are not linked again
+            if (index != null && options.getMaterializeMode() != MaterializeMode.MOVE) {
+                index.record(entry.name(), attrs, entry.destFile);
+            }
+            moved.incrementAndGet();
+            progress.fileMoved();
+        } else {
+            failed.incrementAndGet();
+            progress.fileFailed();
+        }
+
+        // The file exists now, or the name is free again
+        release(entry);
+        return false;
+    }
+
+    private void release(Entry entry) {
+        reservedNames.remove(entry.destFile.getPath());
+        if (entry.staleFile != null) {
+            reservedNames.remove(entry.staleFile.getPath());
+        }
+    }
+}
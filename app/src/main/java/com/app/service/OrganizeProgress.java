@@ -0,0 +1,114 @@
+package com.app.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of an organize run. The organizer updates them while it runs,
+ * so other threads can report progress at any time.
+ */
+public class OrganizeProgress {
+
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong archives = new AtomicLong();
+    private final AtomicLong extracted = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private volatile List<StageStats> stages = List.of();
+
+    /**
+     * @return Number of entries found in the source directory
+     */
+    public long getEntries() {
+        return entries.get();
+    }
+
+    /**
+     * @return Number of files moved so far
+     */
+    public long getMoved() {
+        return moved.get();
+    }
+
+    /**
+     * @return Number of files or archives that could not be organized
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return Number of directories and hidden files left in place
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return Number of archives whose members were organized
+     */
+    public long getArchives() {
+        return archives.get();
+    }
+
+    /**
+     * @return Number of archive members organized so far
+     */
+    public long getExtracted() {
+        return extracted.get();
+    }
+
+    /**
+     * @return Number of entries skipped because the source index shows them
+     *         unchanged
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return Number of entries that have been handled in any way
+     */
+    public long getProcessed() {
+        return getMoved() + getFailed() + getSkipped() + getArchives() + getUnchanged();
+    }
+
+    /**
+     * @return Counters of the pipeline stages, in pipeline order; empty until the
+     *         run has started
+     */
+    public List<StageStats> getStages() {
+        return stages;
+    }
+
+    void setStages(List<StageStats> stages) {
+        this.stages = stages;
+    }
+
+    void addEntries(long count) {
+        entries.addAndGet(count);
+    }
+
+    void fileMoved() {
+        moved.incrementAndGet();
+    }
+
+    void fileFailed() {
+        failed.incrementAndGet();
+    }
+
+    void entrySkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void entriesUnchanged(long count) {
+        unchanged.addAndGet(count);
+    }
+
+    void archiveExtracted(long members) {
+        archives.incrementAndGet();
+        extracted.addAndGet(members);
+    }
+}
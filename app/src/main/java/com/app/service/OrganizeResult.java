@@ -0,0 +1,100 @@
+package com.app.service;
+
+/** Outcome of an organize run, including why it stopped. */
+public class OrganizeResult {
+
+    /** Reason a run ended. */
+    public enum StopReason {
+        /** Every entry of the source directory was handled. */
+        COMPLETED,
+        /** The run was cancelled through its {@link CancellationToken}. */
+        CANCELLED,
+        /** The configured maximum duration was reached. */
+        TIME_BUDGET,
+        /** The configured maximum number of files was reached. */
+        FILE_BUDGET
+    }
+
+    private final long moved;
+    private final long failed;
+    private final long skipped;
+    private final long archives;
+    private final long extracted;
+    private final long remaining;
+    private final long unchanged;
+    private final StopReason stopReason;
+
+    OrganizeResult(long moved, long failed, long skipped, long archives, long extracted, long remaining,
+            long unchanged, StopReason stopReason) {
+        this.moved = moved;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.archives = archives;
+        this.extracted = extracted;
+        this.remaining = remaining;
+        this.unchanged = unchanged;
+        this.stopReason = stopReason;
+    }
+
+    /**
+     * @return Number of files moved
+     */
+    public long getMoved() {
+        return moved;
+    }
+
+    /**
+     * @return Number of files or archives that could not be organized
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Number of directories and hidden files left in place
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Number of archives whose members were organized
+     */
+    public long getArchives() {
+        return archives;
+    }
+
+    /**
+     * @return Number of archive members organized into extension folders
+     */
+    public long getExtracted() {
+        return extracted;
+    }
+
+    /**
+     * @return Number of entries not looked at because the run stopped early;
+     *         they are recorded for the next run
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * @return Number of entries not evaluated again because the source index
+     *         shows them unchanged since an earlier run
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return True if every entry of the source directory was handled
+     */
+    public boolean isComplete() {
+        return stopReason == StopReason.COMPLETED;
+    }
+}
@@ -0,0 +1,131 @@
+package com.app.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Names of source entries a stopped run did not get to. The list is stored as
+ * a hidden file in the source directory, so the next run can continue with
+ * exactly these entries instead of listing and re-checking the whole
+ * directory. One name per line; backslashes, line breaks and a leading
+ * {@code #} are escaped.
+ *
+ * <p>
+ * A run that stops while listing the source directory does not list the rest
+ * of it just to record the names. It records the names it already had and a
+ * marker line instead, and the next run lists the directory again once it has
+ * handled these names.
+ */
+final class PendingList {
+
+    /** File name of the pending list inside the source directory. */
+    static final String FILE_NAME = ".file-organizer-pending";
+
+    private static final String HEADER = "# file-organizer pending v1";
+    private static final String UNLISTED = "# unlisted";
+
+    private final List<String> names;
+    private final boolean unlisted;
+
+    private PendingList(List<String> names, boolean unlisted) {
+        this.names = names;
+        this.unlisted = unlisted;
+    }
+
+    /**
+     * @return Names of the entries still to be handled
+     */
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return True if the stopped run did not finish listing the source
+     *         directory, so it has to be listed again after these names
+     */
+    boolean isUnlisted() {
+        return unlisted;
+    }
+
+    /**
+     * Reads the pending list of a source directory.
+     *
+     * @param sourceDir
+     *            Source directory
+     * @return The pending list, or null if there is none
+     * @throws IOException
+     *             If the list exists but cannot be read
+     */
+    static PendingList read(File sourceDir) throws IOException {
+        Path path = sourceDir.toPath().resolve(FILE_NAME);
+        List<String> names = new ArrayList<>();
+        boolean unlisted = false;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) {
+                throw new IOException("Unrecognized pending list: " + path);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(UNLISTED)) {
+                    unlisted = true;
+                } else if (!line.isEmpty()) {
+                    names.add(NameEscaping.unescape(line));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return new PendingList(names, unlisted);
+    }
+
+    /**
+     * Replaces the pending list of a source directory.
+     *
+     * @param sourceDir
+     *            Source directory
+     * @param names
+     *            Names of the entries still to be handled
+     * @param unlisted
+     *            True if the source directory was not listed to the end
+     * @throws IOException
+     *             If the list cannot be written
+     */
+    static void write(File sourceDir, List<String> names, boolean unlisted) throws IOException {
+        Path path = sourceDir.toPath().resolve(FILE_NAME);
+        Path temp = sourceDir.toPath().resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (String name : names) {
+                writer.write(NameEscaping.escape(name));
+                writer.newLine();
+            }
+            if (unlisted) {
+                writer.write(UNLISTED);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the pending list of a source directory, if any.
+     *
+     * @param sourceDir
+     *            Source directory
+     * @throws IOException
+     *             If the list exists but cannot be deleted
+     */
+    static void delete(File sourceDir) throws IOException {
+        Files.deleteIfExists(sourceDir.toPath().resolve(FILE_NAME));
+    }
+}
@@ -0,0 +1,184 @@
+package com.app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * Describes how files are spread below their extension folder. Without
+ * sharding every file of an extension ends up in a single folder, which gets
+ * slow to probe and list once it holds millions of entries. A sharded layout
+ * adds a fixed number of fan-out levels, e.g. {@code jpg/ab/cd/photo.jpg} for
+ * name hashing or {@code jpg/2026/10/photo.jpg} for modification time. Dates
+ * are taken in UTC, so a file lands in the same folder whatever the time zone
+ * of the host running the organizer.
+ */
+public final class ShardLayout {
+
+    /** Maximum number of hex digits available from the name hash. */
+    private static final int HASH_DIGITS = 8;
+
+    /** Supported sharding types. */
+    public enum Type {
+        /** All files of an extension share one folder. */
+        NONE,
+        /** Fan-out folders derived from a hash of the file name. */
+        HASH,
+        /** Fan-out folders derived from the last modified UTC date (year/month/day). */
+        MTIME
+    }
+
+    private static final ShardLayout NONE = new ShardLayout(Type.NONE, 0, 0);
+
+    private final Type type;
+    private final int width;
+    private final int depth;
+
+    private ShardLayout(Type type, int width, int depth) {
+        this.type = type;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the flat layout, where each extension maps to a single folder.
+     *
+     * @return The unsharded layout
+     */
+    public static ShardLayout none() {
+        return NONE;
+    }
+
+    /**
+     * Creates a layout that shards by a hash of the file name.
+     *
+     * @param width
+     *            Hex digits per level, so each level has {@code 16^width} folders
+     * @param depth
+     *            Number of fan-out levels
+     * @return The hash layout
+     * @throws IllegalArgumentException
+     *             If the width or depth is out of range
+     */
+    public static ShardLayout nameHash(int width, int depth) {
+        if (width < 1 || depth < 1 || width * depth > HASH_DIGITS) {
+            throw new IllegalArgumentException(
+                    "Hash shard width and depth must be positive and width * depth must not exceed " + HASH_DIGITS);
+        }
+        return new ShardLayout(Type.HASH, width, depth);
+    }
+
+    /**
+     * Creates a layout that shards by last modified date in UTC.
+     *
+     * @param depth
+     *            1 for year, 2 for year/month, 3 for year/month/day
+     * @return The modification time layout
+     * @throws IllegalArgumentException
+     *             If the depth is out of range
+     */
+    public static ShardLayout modificationTime(int depth) {
+        if (depth < 1 || depth > 3) {
+            throw new IllegalArgumentException("Modification time shard depth must be between 1 and 3");
+        }
+        return new ShardLayout(Type.MTIME, 0, depth);
+    }
+
+    /**
+     * Creates a layout from its command-line representation.
+     *
+     * @param type
+     *            Sharding type
+     * @param width
+     *            Hex digits per level, only used for {@link Type#HASH}
+     * @param depth
+     *            Number of fan-out levels, ignored for {@link Type#NONE}
+     * @return The matching layout
+     * @throws IllegalArgumentException
+     *             If the width or depth is out of range for the type
+     */
+    public static ShardLayout of(Type type, int width, int depth) {
+        switch (type) {
+            case HASH :
+                return nameHash(width, depth);
+            case MTIME :
+                return modificationTime(depth);
+            default :
+                return none();
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return True if files are spread across fan-out folders
+     */
+    public boolean isSharded() {
+        return type != Type.NONE;
+    }
+
+    /**
+     * Computes the fan-out path for a file, relative to its extension folder.
+     *
+     * @param fileName
+     *            Name of the file
+     * @param lastModifiedMillis
+     *            Last modified time of the file in milliseconds since the epoch
+     * @return The relative shard path using '/' separators, or an empty string
+     *         for the flat layout
+     */
+    public String shardPath(String fileName, long lastModifiedMillis) {
+        switch (type) {
+            case HASH :
+                return hashPath(fileName);
+            case MTIME :
+                return datePath(lastModifiedMillis);
+            default :
+                return "";
+        }
+    }
+
+    private String hashPath(String fileName) {
+        CRC32 crc = new CRC32();
+        crc.update(fileName.getBytes(StandardCharsets.UTF_8));
+        String hex = String.format("%08x", crc.getValue());
+
+        StringBuilder path = new StringBuilder(depth * (width + 1));
+        for (int level = 0; level < depth; level++) {
+            if (level > 0) {
+                path.append('/');
+            }
+            path.append(hex, level * width, (level + 1) * width);
+        }
+        return path.toString();
+    }
+
+    private String datePath(long lastModifiedMillis) {
+        LocalDate date = Instant.ofEpochMilli(lastModifiedMillis).atZone(ZoneOffset.UTC).toLocalDate();
+        StringBuilder path = new StringBuilder(10);
+        path.append(String.format("%04d", date.getYear()));
+        if (depth > 1) {
+            path.append('/').append(String.format("%02d", date.getMonthValue()));
+        }
+        if (depth > 2) {
+            path.append('/').append(String.format("%02d", date.getDayOfMonth()));
+        }
+        return path.toString();
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case HASH :
+                return "hash (width " + width + ", depth " + depth + ")";
+            case MTIME :
+                return "mtime (depth " + depth + ")";
+            default :
+                return "none";
+        }
+    }
+}
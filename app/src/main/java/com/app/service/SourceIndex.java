@@ -0,0 +1,343 @@
+package com.app.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source entries an incremental run evaluated and left in place, such as
+ * directories and, in the link modes, files already linked into the
+ * destination. Each entry is keyed by its file key (device and inode), last
+ * modified time and size, so an entry that is replaced or changed is evaluated
+ * again. A linked file also keeps the destination it was linked to, relative to
+ * the destination directory, so a changed file replaces its earlier link
+ * instead of being linked next to it under a new name.
+ *
+ * <p>
+ * The index also keeps a snapshot of the source directory's own file key and
+ * modified time. Adding, removing or renaming an entry changes the directory's
+ * modified time, so while the snapshot matches, no entry can have appeared and
+ * the run does not need to list the directory at all. A snapshot is only kept
+ * if the directory was last modified well before it was taken; otherwise a
+ * change within the same timestamp tick could go unnoticed.
+ *
+ * <p>
+ * The index is stored as a hidden file in the source directory. It is only
+ * rewritten if its content changed, and then in place rather than replaced,
+ * since replacing it would change the directory's modified time on every run.
+ * A file without its end marker, e.g. after a crash, is treated as unreadable
+ * and the next run starts over. The index belongs to the destination,
+ * materialize mode and shard layout it was written for; a run with different
+ * settings starts over, since an entry left in place under one setting, e.g.
+ * a file linked in a link mode, still has to be handled under another.
+ *
+ * <p>
+ * When the directory has changed, each entry is still read with one attribute
+ * call to compare it against its key; the index only saves the work after that,
+ * such as linking a file again. In {@link MaterializeMode#MOVE} mode moved files
+ * leave the source directory, so only the entries left in place, such as
+ * subdirectories and files that failed, ever benefit.
+ */
+final class SourceIndex {
+
+    /** File name of the index inside the source directory. */
+    static final String FILE_NAME = ".file-organizer-index";
+
+    /** Minimum age of the directory's modified time for a snapshot to be kept. */
+    static final long RACY_WINDOW_MILLIS = 2000;
+
+    private static final String HEADER = "# file-organizer index v2";
+    private static final String OLD_HEADER = "# file-organizer index v1";
+    private static final String FOOTER = "# end";
+    private static final String NO_SNAPSHOT = "-";
+
+    private final String destination;
+    private final String mode;
+    private final String shardLayout;
+    private final String storedSnapshot;
+    private final Map<String, Indexed> previous;
+    private final Map<String, Indexed> next = new ConcurrentHashMap<>();
+    private final Map<String, String> changedDestinations = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    /** Key and destination of one entry. */
+    private static final class Indexed {
+        private final String key;
+        private final String destination;
+
+        Indexed(String key, String destination) {
+            this.key = key;
+            this.destination = destination;
+        }
+    }
+
+    /**
+     * @param storedSnapshot
+     *            Snapshot line of the stored index, or null if there is no
+     *            usable stored index, so it has to be written in any case
+     */
+    private SourceIndex(String destination, String mode, String shardLayout, String storedSnapshot,
+            Map<String, Indexed> previous) {
+        this.destination = destination;
+        this.mode = mode;
+        this.shardLayout = shardLayout;
+        this.storedSnapshot = storedSnapshot;
+        this.previous = previous;
+    }
+
+    /**
+     * Reads the index of a source directory.
+     *
+     * @param sourceDir
+     *            Source directory
+     * @param destDir
+     *            Destination of this run
+     * @param materializeMode
+     *            Materialize mode of this run
+     * @param shardLayout
+     *            Shard layout of this run; an index written for another
+     *            destination, mode or layout is ignored
+     * @return The index, empty if there is none yet
+     * @throws IOException
+     *             If the index exists but cannot be read or is incomplete
+     */
+    static SourceIndex read(File sourceDir, File destDir, MaterializeMode materializeMode, ShardLayout shardLayout)
+            throws IOException {
+        Path path = sourceDir.toPath().resolve(FILE_NAME);
+        String destination = destDir.getAbsolutePath();
+        String mode = materializeMode.name();
+        String shard = shardLayout.toString();
+        Map<String, Indexed> entries = new ConcurrentHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (OLD_HEADER.equals(line)) {
+                return new SourceIndex(destination, mode, shard, null, new ConcurrentHashMap<>());
+            }
+            if (!HEADER.equals(line)) {
+                throw new IOException("Unrecognized index: " + path);
+            }
+            String indexedDestination = NameEscaping.unescape(field(reader.readLine(), "dest", path));
+            String indexedMode = field(reader.readLine(), "mode", path);
+            String indexedShard = field(reader.readLine(), "shard", path);
+            String snapshot = field(reader.readLine(), "dir", path);
+            boolean complete = false;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(FOOTER)) {
+                    complete = true;
+                    break;
+                }
+                int tab = line.indexOf('\t');
+                int secondTab = tab < 0 ? -1 : line.indexOf('\t', tab + 1);
+                if (secondTab < 0) {
+                    throw new IOException("Malformed index entry in " + path);
+                }
+                String entryDestination = NameEscaping.unescape(line.substring(tab + 1, secondTab));
+                entries.put(NameEscaping.unescape(line.substring(secondTab + 1)),
+                        new Indexed(line.substring(0, tab), entryDestination.isEmpty() ? null : entryDestination));
+            }
+            if (!complete) {
+                throw new IOException("Incomplete index: " + path);
+            }
+            if (!indexedDestination.equals(destination) || !indexedMode.equals(mode)
+                    || !indexedShard.equals(shard)) {
+                return new SourceIndex(destination, mode, shard, null, new ConcurrentHashMap<>());
+            }
+            return new SourceIndex(destination, mode, shard, snapshot, entries);
+        } catch (NoSuchFileException e) {
+            return new SourceIndex(destination, mode, shard, null, entries);
+        }
+    }
+
+    /**
+     * Creates an empty index, used when the stored one cannot be read.
+     *
+     * @param destDir
+     *            Destination of this run
+     * @param materializeMode
+     *            Materialize mode of this run
+     * @param shardLayout
+     *            Shard layout of this run
+     * @return The empty index
+     */
+    static SourceIndex empty(File destDir, MaterializeMode materializeMode, ShardLayout shardLayout) {
+        return new SourceIndex(destDir.getAbsolutePath(), materializeMode.name(), shardLayout.toString(), null,
+                new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return Number of entries recorded by the previous run
+     */
+    int size() {
+        return previous.size();
+    }
+
+    /**
+     * Checks whether the source directory is still as the snapshot recorded it,
+     * so no entry was added, removed or renamed since.
+     *
+     * @param directoryAttrs
+     *            Current attributes of the source directory
+     * @return True if the snapshot matches
+     */
+    boolean isDirectoryUnchanged(BasicFileAttributes directoryAttrs) {
+        return storedSnapshot != null && !storedSnapshot.equals(NO_SNAPSHOT)
+                && storedSnapshot.equals(directoryKey(directoryAttrs));
+    }
+
+    /**
+     * Checks an entry against the previous run. An unchanged entry is carried
+     * over into the index written by this run; the destination of a changed
+     * one is kept for {@link #changedDestination(String)}.
+     *
+     * @param name
+     *            Name of the entry
+     * @param attrs
+     *            Current attributes of the entry
+     * @return True if the entry was recorded with the same key
+     */
+    boolean isUnchanged(String name, BasicFileAttributes attrs) {
+        Indexed indexed = previous.remove(name);
+        if (indexed == null) {
+            return false;
+        }
+        if (!indexed.key.equals(entryKey(attrs))) {
+            if (indexed.destination != null) {
+                changedDestinations.put(name, indexed.destination);
+            }
+            modified = true;
+            return false;
+        }
+        next.put(name, indexed);
+        return true;
+    }
+
+    /**
+     * @param name
+     *            Name of an entry {@link #isUnchanged(String, BasicFileAttributes)}
+     *            found changed
+     * @return Path the previous run linked the entry to, relative to the
+     *         destination directory, or null if it recorded none
+     */
+    String changedDestination(String name) {
+        return changedDestinations.get(name);
+    }
+
+    /**
+     * Records an entry that was evaluated and left in place.
+     *
+     * @param name
+     *            Name of the entry
+     * @param attrs
+     *            Attributes of the entry when it was evaluated
+     * @param destFile
+     *            File the entry is linked to in the destination, or null if it
+     *            has none, such as a directory
+     */
+    void record(String name, BasicFileAttributes attrs, File destFile) {
+        String key = entryKey(attrs);
+        if (key != null) {
+            String relative = destFile == null ? null
+                    : Path.of(destination).relativize(destFile.getAbsoluteFile().toPath()).toString();
+            next.put(name, new Indexed(key, relative));
+            modified = true;
+        }
+    }
+
+    /**
+     * Writes the entries recorded by this run, unless the stored index already
+     * holds exactly these entries and the same snapshot.
+     *
+     * @param sourceDir
+     *            Source directory
+     * @param directoryAttrs
+     *            Attributes of the source directory taken before it was listed,
+     *            or null to keep no snapshot
+     * @param takenAtMillis
+     *            Time the directory attributes were read
+     * @param complete
+     *            True if every entry was evaluated, so entries of the previous
+     *            run that were not seen again are gone; otherwise they are kept
+     * @return True if the index file was written
+     * @throws IOException
+     *             If the index cannot be written
+     */
+    boolean write(File sourceDir, BasicFileAttributes directoryAttrs, long takenAtMillis, boolean complete)
+            throws IOException {
+        String directoryKey = NO_SNAPSHOT;
+        if (directoryAttrs != null
+                && takenAtMillis - directoryAttrs.lastModifiedTime().toMillis() >= RACY_WINDOW_MILLIS) {
+            String key = directoryKey(directoryAttrs);
+            directoryKey = key == null ? NO_SNAPSHOT : key;
+        }
+
+        // Every stored entry was carried over unchanged and nothing was added
+        if (!modified && directoryKey.equals(storedSnapshot) && (!complete || previous.isEmpty())) {
+            return false;
+        }
+
+        Path path = sourceDir.toPath().resolve(FILE_NAME);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write("dest\t" + NameEscaping.escape(destination));
+            writer.newLine();
+            writer.write("mode\t" + mode);
+            writer.newLine();
+            writer.write("shard\t" + shardLayout);
+            writer.newLine();
+            writer.write("dir\t" + directoryKey);
+            writer.newLine();
+            if (!complete) {
+                writeEntries(writer, previous);
+            }
+            writeEntries(writer, next);
+            writer.write(FOOTER);
+            writer.newLine();
+        }
+        return true;
+    }
+
+    private static void writeEntries(BufferedWriter writer, Map<String, Indexed> entries) throws IOException {
+        for (Map.Entry<String, Indexed> entry : entries.entrySet()) {
+            Indexed indexed = entry.getValue();
+            writer.write(indexed.key);
+            writer.write('\t');
+            writer.write(indexed.destination == null ? "" : NameEscaping.escape(indexed.destination));
+            writer.write('\t');
+            writer.write(NameEscaping.escape(entry.getKey()));
+            writer.newLine();
+        }
+    }
+
+    private static String field(String line, String name, Path path) throws IOException {
+        if (line == null || !line.startsWith(name + "\t")) {
+            throw new IOException("Malformed index header in " + path);
+        }
+        return line.substring(name.length() + 1);
+    }
+
+    private static String entryKey(BasicFileAttributes attrs) {
+        Object fileKey = attrs.fileKey();
+        if (fileKey == null) {
+            return null;
+        }
+        return fileKey + "/" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "/" + attrs.size();
+    }
+
+    private static String directoryKey(BasicFileAttributes attrs) {
+        Object fileKey = attrs.fileKey();
+        if (fileKey == null) {
+            return null;
+        }
+        return fileKey + "/" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,119 @@
+package com.app.service;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one stage of the organize pipeline. A stage whose
+ * utilization is close to 1 while the queue in front of it stays full is the
+ * bottleneck of the run; the stages before it are held back by backpressure.
+ */
+public final class StageStats {
+
+    private final String name;
+    private final int threads;
+    private final List<? extends BlockingQueue<?>> queues;
+    private final long startNanos;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private volatile long endNanos;
+    private volatile boolean finished;
+
+    StageStats(String name, int threads, List<? extends BlockingQueue<?>> queues, long startNanos) {
+        this.name = name;
+        this.threads = threads;
+        this.queues = queues;
+        this.startNanos = startNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Number of worker threads of this stage
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return Number of entries waiting in front of this stage, summed over its
+     *         queues if its workers have one each; 0 for the first stage
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<?> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return Highest number of entries seen waiting in front of this stage
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    /**
+     * @return Capacity of the queues in front of this stage, 0 for the first
+     *         stage
+     */
+    public int getQueueCapacity() {
+        int capacity = 0;
+        for (BlockingQueue<?> queue : queues) {
+            capacity += queue.size() + queue.remainingCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * @return Number of entries this stage has handled
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return Time the workers of this stage spent working, summed over all
+     *         workers, excluding time spent waiting on the queues
+     */
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+
+    /**
+     * @return Share of the stage's available worker time spent working, from 0
+     *         to 1
+     */
+    public double getUtilization() {
+        long end = finished ? endNanos : System.nanoTime();
+        long available = (end - startNanos) * threads;
+        return available <= 0 ? 0 : Math.min(1.0, (double) getBusyNanos() / available);
+    }
+
+    /**
+     * @return True once all workers of this stage have finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void entryHandled(long nanos) {
+        processed.incrementAndGet();
+        busyNanos.addAndGet(nanos);
+    }
+
+    void entryQueued() {
+        peakQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+    }
+
+    void finished() {
+        endNanos = System.nanoTime();
+        finished = true;
+    }
+}
@@ -0,0 +1,289 @@
+package com.app.service;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming reader for tar archives (ustar, GNU long names and PAX
+ * path/mtime headers). Only regular files are returned; directories, links
+ * and other entry types are skipped. Hard links are counted, since their data
+ * is only stored under the name they link to. GNU sparse files are rejected,
+ * because their data cannot be restored without expanding the sparse map. The
+ * JDK has no tar support, and this is all the organizer needs to stream
+ * members straight to their destination.
+ */
+final class TarReader {
+
+    private static final int BLOCK_SIZE = 512;
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK_SIZE];
+    private long remainingInEntry;
+    private long paddingAfterEntry;
+    private int skippedHardLinks;
+
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** A regular file inside a tar archive. */
+    static final class Entry {
+        private final String name;
+        private final long size;
+        private final long lastModifiedMillis;
+
+        Entry(String name, long size, long lastModifiedMillis) {
+            this.name = name;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+    }
+
+    /**
+     * @return Number of hard link members skipped so far
+     */
+    int getSkippedHardLinks() {
+        return skippedHardLinks;
+    }
+
+    /**
+     * Advances to the next regular file, skipping the unread rest of the
+     * current one.
+     *
+     * @return The next entry, or null at the end of the archive
+     * @throws IOException
+     *             If the archive is truncated or malformed, or contains a GNU
+     *             sparse file
+     */
+    Entry next() throws IOException {
+        skipRestOfEntry();
+
+        String longName = null;
+        Long paxMtimeMillis = null;
+        while (true) {
+            if (!readBlock(header)) {
+                return null;
+            }
+            if (isZeroBlock(header)) {
+                return null; // End-of-archive marker
+            }
+            if (!verifyChecksum(header)) {
+                throw new IOException("Corrupt tar header");
+            }
+
+            char type = (char) header[156];
+            long size = parseNumber(header, 124, 12);
+            String name = longName != null ? longName : headerName(header);
+            long mtimeMillis = paxMtimeMillis != null ? paxMtimeMillis : parseNumber(header, 136, 12) * 1000;
+
+            if (type == 'L') {
+                // GNU long name for the following entry
+                longName = trimNul(new String(readFully(size), StandardCharsets.UTF_8));
+                continue;
+            }
+            if (type == 'x') {
+                // PAX extended header for the following entry
+                String pax = new String(readFully(size), StandardCharsets.UTF_8);
+                String path = paxValue(pax, "path");
+                if (path != null) {
+                    longName = path;
+                }
+                String mtime = paxValue(pax, "mtime");
+                if (mtime != null) {
+                    paxMtimeMillis = (long) (Double.parseDouble(mtime) * 1000);
+                }
+                continue;
+            }
+
+            startEntry(size);
+            if (type == '0' || type == '\0' || type == '7') {
+                return new Entry(name, size, mtimeMillis);
+            }
+            if (type == 'S') {
+                throw new IOException("Unsupported sparse tar member: " + name);
+            }
+            if (type == '1') {
+                skippedHardLinks++;
+            }
+
+            // Directories, links, global headers etc. are not organized
+            skipRestOfEntry();
+            longName = null;
+            paxMtimeMillis = null;
+        }
+    }
+
+    /**
+     * @return A stream over the data of the current entry; closing it does not
+     *         close the archive
+     */
+    InputStream entryStream() {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                if (remainingInEntry <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remainingInEntry--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remainingInEntry <= 0) {
+                    return -1;
+                }
+                int read = in.read(buffer, offset, (int) Math.min(length, remainingInEntry));
+                if (read < 0) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remainingInEntry -= read;
+                return read;
+            }
+
+            @Override
+            public void close() {
+                // The archive stream stays open for the next entry
+            }
+        };
+    }
+
+    private void startEntry(long size) {
+        remainingInEntry = size;
+        paddingAfterEntry = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    private void skipRestOfEntry() throws IOException {
+        skipFully(remainingInEntry + paddingAfterEntry);
+        remainingInEntry = 0;
+        paddingAfterEntry = 0;
+    }
+
+    private byte[] readFully(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("Tar header entry too large");
+        }
+        startEntry(size);
+        byte[] data = in.readNBytes((int) size);
+        if (data.length != size) {
+            throw new EOFException("Truncated tar header entry");
+        }
+        remainingInEntry = 0;
+        skipRestOfEntry();
+        return data;
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, BLOCK_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read != BLOCK_SIZE) {
+            throw new EOFException("Truncated tar header");
+        }
+        return true;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean verifyChecksum(byte[] block) {
+        long expected = parseNumber(block, 148, 8);
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            sum += (i >= 148 && i < 156) ? ' ' : (block[i] & 0xff);
+        }
+        return sum == expected;
+    }
+
+    private static String headerName(byte[] block) {
+        String name = field(block, 0, 100);
+        boolean ustar = field(block, 257, 6).startsWith("ustar");
+        String prefix = ustar ? field(block, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String field(byte[] block, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) {
+            end++;
+        }
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /** Parses an octal field, or a GNU base-256 field for large values. */
+    private static long parseNumber(byte[] block, int offset, int length) {
+        if ((block[offset] & 0x80) != 0) {
+            long value = block[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (block[i] & 0xff);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = block[i];
+            if (b >= '0' && b <= '7') {
+                value = (value << 3) + (b - '0');
+            } else if (b == 0 || (b == ' ' && value > 0)) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    private static String paxValue(String records, String key) {
+        // Records have the form "<length> <key>=<value>\n"
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            int equals = record.indexOf('=');
+            if (space > 0 && equals > space && record.substring(space + 1, equals).equals(key)) {
+                return record.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul >= 0 ? value.substring(0, nul) : value;
+    }
+}
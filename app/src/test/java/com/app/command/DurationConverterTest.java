@@ -0,0 +1,39 @@
+package com.app.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine.TypeConversionException;
+
+/** Unit tests for {@link DurationConverter}. */
+public class DurationConverterTest {
+
+    private final DurationConverter converter = new DurationConverter();
+
+    @Test
+    void testShortUnits() {
+        assertEquals(Duration.ofMillis(500), converter.convert("500ms"));
+        assertEquals(Duration.ofSeconds(90), converter.convert("90s"));
+        assertEquals(Duration.ofMinutes(45), converter.convert("45m"));
+        assertEquals(Duration.ofHours(2), converter.convert("2H"));
+        assertEquals(Duration.ofDays(1), converter.convert("1d"));
+        assertEquals(Duration.ofMinutes(90), converter.convert("1h30m"));
+    }
+
+    @Test
+    void testIsoDuration() {
+        assertEquals(Duration.ofHours(2), converter.convert("PT2H"));
+        assertEquals(Duration.ofMinutes(5), converter.convert("pt5m"));
+    }
+
+    @Test
+    void testInvalidDurations() {
+        assertThrows(TypeConversionException.class, () -> converter.convert(""));
+        assertThrows(TypeConversionException.class, () -> converter.convert("10"));
+        assertThrows(TypeConversionException.class, () -> converter.convert("10x"));
+        assertThrows(TypeConversionException.class, () -> converter.convert("1h and 5m"));
+        assertThrows(TypeConversionException.class, () -> converter.convert("PTxyz"));
+    }
+}
@@ -75,6 +75,23 @@ public class FileOrganizerCommandTest {
         assertTrue(output.contains("Successfully organized"));
     }
 
+    @Test
+    void testCommandReportsLinkMode(@TempDir Path tempDir) {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Execute command in hard link mode
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--mode", "HARDLINK");
+
+        // Verify the output names the mode
+        assertEquals(0, exitCode);
+        assertTrue(outputWriter.toString().contains("Linking to: " + destDir.getAbsolutePath()));
+    }
+
     @Test
     void testNonExistentSourceDirectory(@TempDir Path tempDir) {
         // Create a non-existent source directory path
@@ -154,6 +171,126 @@ public class FileOrganizerCommandTest {
         assertTrue(error.contains("Error: Destination path exists but is not a directory"));
     }
 
+    @Test
+    void testShardOptions(@TempDir Path tempDir) throws Exception {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+        assertTrue(new File(sourceDir, "photo.jpg").createNewFile());
+
+        // Execute command with a hash shard layout
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--shard", "HASH", "--shard-width", "1", "--shard-depth", "3");
+
+        // Verify the file was moved three levels below its extension folder
+        assertEquals(0, exitCode);
+        assertTrue(outputWriter.toString().contains("Shard layout: hash"));
+        File[] level1 = new File(destDir, "jpg").listFiles();
+        assertNotNull(level1);
+        assertEquals(1, level1.length);
+        assertTrue(level1[0].getName().matches("[0-9a-f]"));
+    }
+
+    @Test
+    void testInvalidShardSize(@TempDir Path tempDir) {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Execute command with more hash digits than available
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--shard", "HASH", "--shard-width", "4", "--shard-depth", "3");
+
+        // Verify command failed with the appropriate error
+        assertEquals(1, exitCode);
+        assertTrue(errorWriter.toString().contains("Error: Hash shard width and depth"));
+    }
+
+    @Test
+    void testMaxFilesBudget(@TempDir Path tempDir) throws Exception {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+        assertTrue(new File(sourceDir, "a.txt").createNewFile());
+        assertTrue(new File(sourceDir, "b.txt").createNewFile());
+        assertTrue(new File(sourceDir, "c.txt").createNewFile());
+
+        // Execute command with a budget of one file
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--max-files", "1", "--max-duration", "1h");
+
+        // Verify the run stopped early and reported what is left
+        assertEquals(0, exitCode);
+        String output = outputWriter.toString();
+        assertTrue(output.contains("Successfully organized 1 files."));
+        assertTrue(output.contains("Stopped early (file budget reached): 2 entries remain"));
+    }
+
+    @Test
+    void testHardLinkMode(@TempDir Path tempDir) throws Exception {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+        assertTrue(new File(sourceDir, "a.txt").createNewFile());
+
+        // Execute command in hard link mode
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--mode", "HARDLINK");
+
+        // Verify the file was placed and the source kept
+        assertEquals(0, exitCode);
+        assertTrue(outputWriter.toString().contains("Successfully organized 1 files."));
+        assertTrue(new File(destDir, "txt/a.txt").exists());
+        assertTrue(new File(sourceDir, "a.txt").exists());
+    }
+
+    @Test
+    void testStageStats(@TempDir Path tempDir) throws Exception {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+        assertTrue(new File(sourceDir, "a.txt").createNewFile());
+
+        // Execute command with custom stage settings and statistics
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--move-threads", "2", "--queue-capacity", "8", "--stats");
+
+        // Verify a line was printed for each stage
+        assertEquals(0, exitCode);
+        String output = outputWriter.toString();
+        assertTrue(output.contains("Utilization"));
+        assertTrue(output.contains("enumerate"));
+        assertTrue(output.contains("move"));
+        assertTrue(output.contains("/8"));
+    }
+
+    @Test
+    void testInvalidMaxDuration(@TempDir Path tempDir) {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("dest").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Execute command with an unparsable duration
+        int exitCode = commandLine.execute("-s", sourceDir.getAbsolutePath(), "-d", destDir.getAbsolutePath(),
+                "--max-duration", "soon");
+
+        // Verify picocli rejected the value
+        assertNotEquals(0, exitCode);
+        assertTrue(errorWriter.toString().contains("Invalid duration 'soon'"));
+    }
+
     @Test
     void testMissingRequiredOptions() {
         // Execute command without required options
@@ -0,0 +1,113 @@
+package com.app.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.app.service.OrganizeOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link JobManager}. */
+public class JobManagerTest {
+
+    private JobManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new JobManager(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void testJobsSharingSourceRunOneAfterAnother(@TempDir Path tempDir) throws Exception {
+        // Create one source directory and two destinations
+        Path sourceDir = createFiles(tempDir.resolve("source"), 200);
+
+        // Submit two jobs for the same source
+        OrganizeJob first = manager.submit(sourceDir.toFile(), tempDir.resolve("dest1").toFile(),
+                new OrganizeOptions());
+        OrganizeJob second = manager.submit(sourceDir.toFile(), tempDir.resolve("dest2").toFile(),
+                new OrganizeOptions());
+        awaitFinished(List.of(first, second), first, second);
+
+        // Every file was moved exactly once
+        assertEquals(OrganizeJob.State.SUCCEEDED, first.getState());
+        assertEquals(OrganizeJob.State.SUCCEEDED, second.getState());
+        assertEquals(200, first.getProgress().getMoved() + second.getProgress().getMoved());
+        assertEquals(0, first.getProgress().getFailed() + second.getProgress().getFailed());
+        assertEquals(200L, manager.metrics().get("filesMoved"));
+    }
+
+    @Test
+    void testJobsSharingDestinationKeepSubmissionOrder(@TempDir Path tempDir) throws Exception {
+        // Create two jobs for one destination and one for another
+        Path destDir = tempDir.resolve("dest");
+        OrganizeJob first = manager.submit(createFiles(tempDir.resolve("source1"), 2000).toFile(), destDir.toFile(),
+                new OrganizeOptions());
+        OrganizeJob second = manager.submit(createFiles(tempDir.resolve("source2"), 1).toFile(), destDir.toFile(),
+                new OrganizeOptions());
+        OrganizeJob other = manager.submit(createFiles(tempDir.resolve("source3"), 1).toFile(),
+                tempDir.resolve("other").toFile(), new OrganizeOptions());
+
+        // The second job only starts once the first has finished
+        awaitFinished(List.of(first, second, other), first, second);
+
+        assertEquals(OrganizeJob.State.SUCCEEDED, first.getState());
+        assertEquals(OrganizeJob.State.SUCCEEDED, second.getState());
+        assertEquals(OrganizeJob.State.SUCCEEDED, other.getState());
+        assertEquals(2001, first.getProgress().getMoved() + second.getProgress().getMoved());
+    }
+
+    @Test
+    void testCancelledQueuedJobNeverStarts(@TempDir Path tempDir) throws Exception {
+        // Queue a job behind another for the same destination and cancel it
+        Path destDir = tempDir.resolve("dest");
+        OrganizeJob first = manager.submit(createFiles(tempDir.resolve("source1"), 2000).toFile(), destDir.toFile(),
+                new OrganizeOptions());
+        OrganizeJob second = manager.submit(createFiles(tempDir.resolve("source2"), 1).toFile(), destDir.toFile(),
+                new OrganizeOptions());
+        manager.cancel(second.getId());
+        awaitFinished(List.of(first, second), first, second);
+
+        assertEquals(OrganizeJob.State.CANCELLED, second.getState());
+        assertEquals(0, second.getProgress().getMoved());
+        assertEquals(2000, first.getProgress().getMoved());
+    }
+
+    private static Path createFiles(Path dir, int count) throws IOException {
+        Files.createDirectory(dir);
+        for (int i = 0; i < count; i++) {
+            Files.writeString(dir.resolve("file" + i + ".txt"), "text");
+        }
+        return dir;
+    }
+
+    /**
+     * Polls jobs until all have finished, failing if the later of two jobs
+     * sharing a directory is ever seen running while the earlier one still is.
+     */
+    private static void awaitFinished(List<OrganizeJob> jobs, OrganizeJob earlier, OrganizeJob later)
+            throws InterruptedException {
+        for (int attempt = 0; attempt < 2000; attempt++) {
+            // Read the later job first, so a finish in between cannot look like an overlap
+            boolean laterRunning = later.getState() == OrganizeJob.State.RUNNING;
+            assertFalse(laterRunning && earlier.getState() == OrganizeJob.State.RUNNING,
+                    "Jobs sharing a directory overlapped");
+            if (jobs.stream().allMatch(job -> job.getState().isFinished())) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Jobs did not finish");
+    }
+}
@@ -0,0 +1,48 @@
+package com.app.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link Json}. */
+public class JsonTest {
+
+    @Test
+    void testWriteNestedValues() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "a \"quoted\"\npath\\");
+        map.put("count", 3L);
+        map.put("ok", true);
+        map.put("missing", null);
+        map.put("items", Arrays.asList(1, "two"));
+
+        assertEquals("{\"name\":\"a \\\"quoted\\\"\\npath\\\\\",\"count\":3,\"ok\":true,\"missing\":null,"
+                + "\"items\":[1,\"two\"]}", Json.write(map));
+    }
+
+    @Test
+    void testParseFlatObject() {
+        Map<String, Object> map = Json.parseObject(
+                " { \"source\" : \"/tmp/a\\\"b\", \"depth\": 2, \"ratio\": 0.5, \"on\": false, \"x\": null } ");
+
+        assertEquals("/tmp/a\"b", map.get("source"));
+        assertEquals(2L, map.get("depth"));
+        assertEquals(0.5, map.get("ratio"));
+        assertEquals(false, map.get("on"));
+        assertNull(map.get("x"));
+        assertEquals(0, Json.parseObject("{}").size());
+    }
+
+    @Test
+    void testParseRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject(""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": {}}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1} trailing"));
+    }
+}
@@ -0,0 +1,158 @@
+package com.app.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link OrganizeServer}. */
+public class OrganizeServerTest {
+
+    private OrganizeServer server;
+    private HttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Bind to a free port on the loopback interface
+        server = new OrganizeServer(new InetSocketAddress("127.0.0.1", 0), 2);
+        server.start();
+        client = HttpClient.newHttpClient();
+        baseUrl = "http://127.0.0.1:" + server.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testSubmitJobAndPollStatus(@TempDir Path tempDir) throws Exception {
+        // Create a source directory with files
+        Path sourceDir = Files.createDirectory(tempDir.resolve("source"));
+        Files.writeString(sourceDir.resolve("document.txt"), "text");
+        Files.writeString(sourceDir.resolve("image.jpg"), "image");
+        Path destDir = tempDir.resolve("dest");
+
+        // Submit a job
+        HttpResponse<String> submitted = post("/jobs",
+                "{\"source\": \"" + json(sourceDir) + "\", \"dest\": \"" + json(destDir) + "\"}");
+        assertEquals(202, submitted.statusCode());
+        assertEquals("/jobs/1", submitted.headers().firstValue("Location").orElse(""));
+
+        // Poll until the job has finished
+        String status = awaitFinished("/jobs/1");
+        assertTrue(status.contains("\"state\":\"SUCCEEDED\""), status);
+        assertTrue(status.contains("\"moved\":2"), status);
+        assertTrue(status.contains("{\"name\":\"move\",\"threads\":4,\"processed\":2"), status);
+        assertTrue(Files.exists(destDir.resolve("txt/document.txt")));
+        assertTrue(Files.exists(destDir.resolve("jpg/image.jpg")));
+
+        // Metrics reflect the finished job
+        String metrics = get("/metrics").body();
+        assertTrue(metrics.contains("\"succeeded\":1"), metrics);
+        assertTrue(metrics.contains("\"filesMoved\":2"), metrics);
+    }
+
+    @Test
+    void testSubmitJobWithShardLayout(@TempDir Path tempDir) throws Exception {
+        // Create a source directory with a file
+        Path sourceDir = Files.createDirectory(tempDir.resolve("source"));
+        Files.writeString(sourceDir.resolve("image.jpg"), "image");
+        Path destDir = tempDir.resolve("dest");
+
+        // Submit a job with a single level of hash shards
+        HttpResponse<String> submitted = post("/jobs", "{\"source\": \"" + json(sourceDir) + "\", \"dest\": \""
+                + json(destDir) + "\", \"shard\": \"hash\", \"shardWidth\": 1, \"shardDepth\": 1}");
+        assertEquals(202, submitted.statusCode());
+
+        // The file ends up one level below its extension folder
+        awaitFinished("/jobs/1");
+        String[] shards = destDir.resolve("jpg").toFile().list();
+        assertEquals(1, shards.length);
+        assertTrue(shards[0].matches("[0-9a-f]"));
+    }
+
+    @Test
+    void testSubmitJobWithFileBudgetBeyondIntRange(@TempDir Path tempDir) throws Exception {
+        // Create a source directory with a file
+        Path sourceDir = Files.createDirectory(tempDir.resolve("source"));
+        Files.writeString(sourceDir.resolve("notes.txt"), "text");
+        Path destDir = tempDir.resolve("dest");
+
+        // A file budget above the int range is accepted
+        HttpResponse<String> submitted = post("/jobs", "{\"source\": \"" + json(sourceDir) + "\", \"dest\": \""
+                + json(destDir) + "\", \"maxFiles\": 5000000000}");
+        assertEquals(202, submitted.statusCode());
+        assertTrue(awaitFinished("/jobs/1").contains("\"state\":\"SUCCEEDED\""));
+    }
+
+    @Test
+    void testRejectsInvalidRequests(@TempDir Path tempDir) throws Exception {
+        assertEquals(400, post("/jobs", "not json").statusCode());
+        assertEquals(400, post("/jobs", "{\"source\": \"/tmp\"}").statusCode());
+        assertEquals(400, post("/jobs",
+                "{\"source\": \"" + json(tempDir.resolve("missing")) + "\", \"dest\": \"" + json(tempDir) + "\"}")
+                .statusCode());
+        assertEquals(400, post("/jobs",
+                "{\"source\": \"" + json(tempDir) + "\", \"dest\": \"" + json(tempDir) + "\", \"shard\": \"nope\"}")
+                .statusCode());
+    }
+
+    @Test
+    void testUnknownJobAndCancel() throws Exception {
+        assertEquals(404, get("/jobs/42").statusCode());
+        assertEquals(404, get("/jobs/abc").statusCode());
+
+        HttpRequest cancel = HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/42")).DELETE().build();
+        assertEquals(404, client.send(cancel, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void testHealthAndMethodNotAllowed() throws Exception {
+        HttpResponse<String> health = get("/health");
+        assertEquals(200, health.statusCode());
+        assertTrue(health.body().contains("UP"));
+
+        assertEquals(405, post("/metrics", "{}").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /** Polls a job until it reports a finished state. */
+    private String awaitFinished(String path) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String body = get(path).body();
+            if (body.contains("SUCCEEDED") || body.contains("FAILED") || body.contains("CANCELLED")) {
+                return body;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job did not finish: " + get(path).body());
+    }
+
+    /** Escapes a path for embedding in a JSON string. */
+    private static String json(Path path) {
+        return path.toAbsolutePath().toString().replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,197 @@
+package com.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ArchiveExtractor}. */
+public class ArchiveExtractorTest {
+
+    private static final long MTIME_MILLIS = 1_600_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private File destDir;
+    private ArchiveExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+        extractor = new ArchiveExtractor(new FileOrganizer(), destDir, ShardLayout.none(), new ConcurrentHashMap<>());
+    }
+
+    @Test
+    void testIsArchive() {
+        assertTrue(ArchiveExtractor.isArchive("bundle.zip"));
+        assertTrue(ArchiveExtractor.isArchive("bundle.TAR"));
+        assertTrue(ArchiveExtractor.isArchive("bundle.tar.gz"));
+        assertTrue(ArchiveExtractor.isArchive("bundle.tgz"));
+        assertFalse(ArchiveExtractor.isArchive("notes.gz"));
+        assertFalse(ArchiveExtractor.isArchive("notes.txt"));
+    }
+
+    @Test
+    void testExtractZipFlattensMembersAndKeepsTimestamps() throws IOException {
+        // Create a zip with nested, hidden and directory entries
+        File archive = tempDir.resolve("bundle.zip").toFile();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zipEntry(zip, "docs/readme.txt", "readme");
+            zipEntry(zip, "images/photo.jpg", "image");
+            zipEntry(zip, ".hidden", "hidden");
+        }
+
+        // Extract the archive
+        int members = extractor.extract(archive, false);
+
+        // Verify members were flattened into their extension folders
+        assertEquals(2, members);
+        File readme = new File(destDir, "txt/readme.txt");
+        assertEquals("readme", Files.readString(readme.toPath()));
+        assertEquals("image", Files.readString(new File(destDir, "jpg/photo.jpg").toPath()));
+        assertFalse(new File(destDir, "no_extension/.hidden").exists());
+        assertEquals(MTIME_MILLIS, Files.getLastModifiedTime(readme.toPath()).toMillis());
+
+        // The archive itself is left for the caller
+        assertTrue(archive.exists());
+    }
+
+    @Test
+    void testExtractTarGzWithLongNamesAndConflicts() throws IOException {
+        // Pre-create a conflicting file in the destination
+        File txtFolder = new File(destDir, "txt");
+        assertTrue(txtFolder.mkdir());
+        Files.writeString(txtFolder.toPath().resolve("notes.txt"), "existing");
+
+        // Create a tar.gz with a conflicting member and a GNU long name
+        char[] longName = new char[150];
+        Arrays.fill(longName, 'n');
+        String longFileName = new String(longName) + ".log";
+        File archive = tempDir.resolve("bundle.tar.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive.toPath()))) {
+            out.write(tarEntry("dir/notes.txt", '0', "from archive".getBytes(StandardCharsets.UTF_8)));
+            out.write(tarEntry("././@LongLink", 'L', (longFileName + "\0").getBytes(StandardCharsets.UTF_8)));
+            out.write(tarEntry("truncated-name", '0', "log".getBytes(StandardCharsets.UTF_8)));
+            out.write(tarEntry("dir/", '5', new byte[0]));
+            out.write(new byte[1024]);
+        }
+
+        // Extract the archive
+        int members = extractor.extract(archive, false);
+
+        // Verify the conflict was renamed and the long name was used
+        assertEquals(2, members);
+        assertEquals("existing", Files.readString(txtFolder.toPath().resolve("notes.txt")));
+        Path renamed = txtFolder.toPath().resolve("notes_1.txt");
+        assertEquals("from archive", Files.readString(renamed));
+        assertEquals(MTIME_MILLIS, Files.getLastModifiedTime(renamed).toMillis());
+        assertEquals("log", Files.readString(new File(destDir, "log/" + longFileName).toPath()));
+    }
+
+    @Test
+    void testFailedExtractionRemovesWrittenMembers() throws IOException {
+        // Create a tar whose second entry is truncated
+        File archive = tempDir.resolve("broken.tar").toFile();
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tar.write(tarEntry("first.txt", '0', "first".getBytes(StandardCharsets.UTF_8)));
+        byte[] second = tarEntry("second.txt", '0', new byte[2048]);
+        tar.write(second, 0, 1024);
+        Files.write(archive.toPath(), tar.toByteArray());
+
+        // Extraction fails and leaves nothing behind
+        assertThrows(IOException.class, () -> extractor.extract(archive, false));
+        assertFalse(new File(destDir, "txt/first.txt").exists());
+        assertFalse(new File(destDir, "txt/second.txt").exists());
+    }
+
+    @Test
+    void testConsumedArchiveIsDeletedAfterExtraction() throws IOException {
+        // Create a tar with a regular file and a hard link to it
+        File archive = tempDir.resolve("bundle.tar").toFile();
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tar.write(tarEntry("notes.txt", '0', "notes".getBytes(StandardCharsets.UTF_8)));
+        tar.write(tarEntry("copy.txt", '1', new byte[0]));
+        Files.write(archive.toPath(), tar.toByteArray());
+
+        // The hard link is skipped, the file extracted and the archive deleted
+        assertEquals(1, extractor.extract(archive, true));
+        assertEquals("notes", Files.readString(new File(destDir, "txt/notes.txt").toPath()));
+        assertFalse(new File(destDir, "txt/copy.txt").exists());
+        assertFalse(archive.exists());
+    }
+
+    @Test
+    void testSparseMemberFailsExtraction() throws IOException {
+        // Create a tar with a regular file followed by a GNU sparse file
+        File archive = tempDir.resolve("sparse.tar").toFile();
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tar.write(tarEntry("first.txt", '0', "first".getBytes(StandardCharsets.UTF_8)));
+        tar.write(tarEntry("disk.img", 'S', new byte[512]));
+        Files.write(archive.toPath(), tar.toByteArray());
+
+        // Extraction fails instead of silently dropping the data, and the archive is kept
+        assertThrows(IOException.class, () -> extractor.extract(archive, true));
+        assertFalse(new File(destDir, "txt/first.txt").exists());
+        assertTrue(archive.exists());
+    }
+
+    private static void zipEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setLastModifiedTime(FileTime.fromMillis(MTIME_MILLIS));
+        zip.putNextEntry(entry);
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /** Builds a ustar header followed by the padded entry data. */
+    private static byte[] tarEntry(String name, char type, byte[] data) {
+        byte[] header = new byte[512];
+        putString(header, 0, name);
+        putString(header, 100, "0000644");
+        putString(header, 124, String.format("%011o", data.length));
+        putString(header, 136, String.format("%011o", MTIME_MILLIS / 1000));
+        header[156] = (byte) type;
+        putString(header, 257, "ustar");
+        putString(header, 263, "00");
+
+        // The checksum is computed with its own field filled with spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xff;
+        }
+        putString(header, 148, String.format("%06o", sum));
+        header[154] = 0;
+
+        int padded = (data.length + 511) / 512 * 512;
+        byte[] entry = new byte[512 + padded];
+        System.arraycopy(header, 0, entry, 0, 512);
+        System.arraycopy(data, 0, entry, 512, data.length);
+        return entry;
+    }
+
+    private static void putString(byte[] block, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, block, offset, bytes.length);
+    }
+}
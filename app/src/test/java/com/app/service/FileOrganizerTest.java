@@ -1,6 +1,7 @@
 package com.app.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -8,7 +9,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -228,6 +232,459 @@ public class FileOrganizerTest {
         assertTrue(new File(sourceDir, ".hidden").exists());
     }
 
+    @Test
+    void testOrganizeFilesWithHashShards(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        createTestFile(sourceDir, "photo1.jpg", "image one");
+        createTestFile(sourceDir, "photo2.jpg", "image two");
+
+        // Organize files into two levels of hash shards
+        ShardLayout layout = ShardLayout.nameHash(2, 2);
+        int count = fileOrganizer.organizeFiles(sourceDir, destDir, new OrganizeOptions().setShardLayout(layout));
+
+        // Verify each file landed in its shard folder below the extension folder
+        assertEquals(2, count);
+        assertTrue(new File(destDir, "jpg/" + layout.shardPath("photo1.jpg", 0L) + "/photo1.jpg").exists());
+        assertTrue(new File(destDir, "jpg/" + layout.shardPath("photo2.jpg", 0L) + "/photo2.jpg").exists());
+    }
+
+    @Test
+    void testOrganizeFilesWithShardNameConflicts(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        createTestFile(sourceDir, "document.txt", "original content");
+
+        // Pre-create the same file in its shard folder
+        ShardLayout layout = ShardLayout.nameHash(1, 1);
+        File shardFolder = new File(destDir, "txt/" + layout.shardPath("document.txt", 0L));
+        assertTrue(shardFolder.mkdirs());
+        createTestFile(shardFolder, "document.txt", "pre-existing content");
+
+        // Organize files
+        int count = fileOrganizer.organizeFiles(sourceDir, destDir, new OrganizeOptions().setShardLayout(layout));
+
+        // Verify the conflict was resolved inside the shard folder
+        assertEquals(1, count);
+        assertEquals("original content", Files.readString(new File(shardFolder, "document_1.txt").toPath()));
+        assertEquals("pre-existing content", Files.readString(new File(shardFolder, "document.txt").toPath()));
+    }
+
+    @Test
+    void testFileBudgetRecordsAndResumesPendingFiles(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        for (int i = 0; i < 5; i++) {
+            createTestFile(sourceDir, "document" + i + ".txt", "content " + i);
+        }
+
+        // Organize with a budget of two files
+        OrganizeResult first = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions().setMaxFiles(2),
+                new OrganizeProgress(), new CancellationToken());
+
+        // Verify the run stopped and recorded what is left
+        assertEquals(OrganizeResult.StopReason.FILE_BUDGET, first.getStopReason());
+        assertEquals(2, first.getMoved());
+        assertEquals(3, first.getRemaining());
+        assertTrue(new File(sourceDir, ".file-organizer-pending").exists());
+
+        // A file added in the meantime is not part of the pending list
+        createTestFile(sourceDir, "late.txt", "late");
+
+        // The next run handles exactly the remaining files and clears the list
+        OrganizeResult second = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions(),
+                new OrganizeProgress(), new CancellationToken());
+        assertTrue(second.isComplete());
+        assertEquals(3, second.getMoved());
+        assertFalse(new File(sourceDir, ".file-organizer-pending").exists());
+        assertTrue(new File(sourceDir, "late.txt").exists());
+
+        // The run after that lists the directory again and picks up the new file
+        assertEquals(1, fileOrganizer.organizeFiles(sourceDir, destDir));
+        assertEquals(6, Objects.requireNonNull(new File(destDir, "txt").list()).length);
+    }
+
+    @Test
+    void testCancelledRunLeavesSourceUntouched(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        createTestFile(sourceDir, "a.txt", "a");
+        createTestFile(sourceDir, "b.txt", "b");
+
+        // Organize with a token that is already cancelled
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        OrganizeProgress progress = new OrganizeProgress();
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions(), progress,
+                cancellation);
+
+        // Verify nothing was listed, moved or recorded
+        assertEquals(OrganizeResult.StopReason.CANCELLED, result.getStopReason());
+        assertEquals(0, result.getMoved());
+        assertEquals(0, result.getRemaining());
+        assertEquals(0, progress.getEntries());
+        assertFalse(new File(sourceDir, ".file-organizer-pending").exists());
+    }
+
+    @Test
+    void testPendingEntriesThatVanishedAreSkipped(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        File first = createTestFile(sourceDir, "a.txt", "a");
+        File second = createTestFile(sourceDir, "b.txt", "b");
+
+        // Record both files as pending, then delete one of them
+        PendingList.write(sourceDir, List.of("a.txt", "b.txt"), false);
+        assertTrue(first.delete());
+
+        // Verify the remaining file is moved and the missing one is skipped
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions(),
+                new OrganizeProgress(), new CancellationToken());
+        assertEquals(1, result.getMoved());
+        assertEquals(1, result.getSkipped());
+        assertEquals(0, result.getFailed());
+        assertFalse(second.exists());
+    }
+
+    @Test
+    void testUnlistedPendingListListsDirectoryAfterNames(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        createTestFile(sourceDir, "#notes.txt", "pending");
+        createTestFile(sourceDir, "unlisted.txt", "unlisted");
+
+        // Record one file as pending from a run that stopped while listing
+        PendingList.write(sourceDir, List.of("#notes.txt"), true);
+        PendingList pending = PendingList.read(sourceDir);
+        assertEquals(List.of("#notes.txt"), pending.getNames());
+        assertTrue(pending.isUnlisted());
+
+        // The next run handles the pending file, then lists the rest
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions(),
+                new OrganizeProgress(), new CancellationToken());
+        assertTrue(result.isComplete());
+        assertEquals(2, result.getMoved());
+        assertFalse(new File(sourceDir, ".file-organizer-pending").exists());
+    }
+
+    @Test
+    void testOrganizeFilesExtractsArchives(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Create a plain file and a zip with two members
+        createTestFile(sourceDir, "plain.txt", "plain");
+        try (ZipOutputStream zip = new ZipOutputStream(
+                Files.newOutputStream(sourceDir.toPath().resolve("bundle.zip")))) {
+            zip.putNextEntry(new ZipEntry("inner/document.txt"));
+            zip.write("document".getBytes());
+            zip.putNextEntry(new ZipEntry("photo.jpg"));
+            zip.write("image".getBytes());
+        }
+
+        // Organize with archive extraction enabled
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setExtractArchives(true).setArchiveThreads(2), new OrganizeProgress(),
+                new CancellationToken());
+
+        // Verify the members were organized and the archive was consumed
+        assertEquals(1, result.getMoved());
+        assertEquals(1, result.getArchives());
+        assertEquals(2, result.getExtracted());
+        assertTrue(new File(destDir, "txt/plain.txt").exists());
+        assertTrue(new File(destDir, "txt/document.txt").exists());
+        assertTrue(new File(destDir, "jpg/photo.jpg").exists());
+        assertFalse(new File(destDir, "zip").exists());
+        assertEquals(0, countVisibleFiles(sourceDir));
+    }
+
+    @Test
+    void testHardLinkModeKeepsSourceFiles(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories on the same filesystem
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Create test files
+        File document = createTestFile(sourceDir, "document.txt", "text");
+        createTestFile(sourceDir, "photo.jpg", "image");
+
+        // Organize by hard linking
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setMaterializeMode(MaterializeMode.HARDLINK), new OrganizeProgress(),
+                new CancellationToken());
+
+        // Verify the files were linked and the source was left untouched
+        assertEquals(2, result.getMoved());
+        assertEquals(2, countVisibleFiles(sourceDir));
+        File linked = new File(destDir, "txt/document.txt");
+        assertTrue(linked.exists());
+        assertTrue(new File(destDir, "jpg/photo.jpg").exists());
+        Object sourceKey = Files.readAttributes(document.toPath(), BasicFileAttributes.class).fileKey();
+        if (sourceKey != null) {
+            assertEquals(sourceKey, Files.readAttributes(linked.toPath(), BasicFileAttributes.class).fileKey());
+        }
+    }
+
+    @Test
+    void testRepeatedHardLinkRunDoesNotLinkFilesAgain(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories on the same filesystem
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Create a file and an unrelated file already taking its name
+        createTestFile(sourceDir, "document.txt", "text");
+        createTestFile(sourceDir, "notes.txt", "new notes");
+        assertTrue(new File(destDir, "txt").mkdir());
+        createTestFile(new File(destDir, "txt"), "notes.txt", "old notes");
+        OrganizeOptions options = new OrganizeOptions().setMaterializeMode(MaterializeMode.HARDLINK);
+
+        // Link twice without an index
+        OrganizeResult first = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+        OrganizeResult second = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+
+        // Verify the second run found both files already linked, the renamed one included
+        assertEquals(2, first.getMoved());
+        assertEquals(0, second.getMoved());
+        assertEquals(2, second.getUnchanged());
+        assertEquals(3, Objects.requireNonNull(new File(destDir, "txt").list()).length);
+        assertEquals("new notes", Files.readString(destDir.toPath().resolve("txt/notes_1.txt")));
+    }
+
+    @Test
+    void testRefusedReflinkCountsAsFailed(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories on the same filesystem
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+        File document = createTestFile(sourceDir, "document.txt", "text");
+
+        // Clone into the destination
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setMaterializeMode(MaterializeMode.REFLINK), new OrganizeProgress(),
+                new CancellationToken());
+        if (result.getMoved() == 1) {
+            return; // This filesystem supports reflinks
+        }
+
+        // A refused clone is a failure, not a silent copy, and leaves nothing behind
+        assertEquals(1, result.getFailed());
+        assertFalse(new File(destDir, "txt/document.txt").exists());
+        assertTrue(document.exists());
+    }
+
+    @Test
+    void testPipelineResolvesConflictsAcrossParallelMoves(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File txtDir = tempDir.resolve("destination/txt").toFile();
+        assertTrue(txtDir.mkdirs());
+        File destDir = txtDir.getParentFile();
+
+        // Create files whose names collide with the suffixed names of each other
+        createTestFile(txtDir, "report.txt", "existing");
+        createTestFile(sourceDir, "report.txt", "report");
+        for (int i = 1; i < 100; i++) {
+            createTestFile(sourceDir, "report_" + i + ".txt", "report " + i);
+        }
+
+        // Organize with tiny queues and several move workers
+        OrganizeProgress progress = new OrganizeProgress();
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setPrefetchThreads(3).setClassifyThreads(3).setMoveThreads(4)
+                        .setQueueCapacity(2),
+                progress, new CancellationToken());
+
+        // Verify every file got its own name and the stage counters add up
+        assertEquals(100, result.getMoved());
+        assertEquals(0, result.getFailed());
+        assertEquals(101, Objects.requireNonNull(txtDir.list()).length);
+        assertEquals(4, progress.getStages().size());
+        for (StageStats stage : progress.getStages()) {
+            assertTrue(stage.isFinished());
+            assertTrue(stage.getPeakQueueDepth() <= stage.getQueueCapacity());
+        }
+        assertEquals(6, progress.getStages().get(2).getQueueCapacity());
+        assertEquals(100, progress.getStages().get(3).getProcessed());
+        assertEquals(4, progress.getStages().get(3).getThreads());
+    }
+
+    @Test
+    void testClassifyThreadsPartitionTargetFolders(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Create colliding names in several extension folders
+        String[] extensions = { "txt", "jpg", "pdf", "log", "csv" };
+        for (String extension : extensions) {
+            File folder = new File(destDir, extension);
+            assertTrue(folder.mkdir());
+            createTestFile(folder, "report." + extension, "existing");
+            createTestFile(sourceDir, "report." + extension, "report");
+            for (int i = 1; i < 20; i++) {
+                createTestFile(sourceDir, "report_" + i + "." + extension, "report " + i);
+            }
+        }
+
+        // Organize with several classify workers sharing the folders
+        OrganizeProgress progress = new OrganizeProgress();
+        OrganizeResult result = fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setClassifyThreads(4).setQueueCapacity(4), progress, new CancellationToken());
+
+        // Verify no name was handed out twice
+        assertEquals(100, result.getMoved());
+        assertEquals(0, result.getFailed());
+        for (String extension : extensions) {
+            assertEquals(21, Objects.requireNonNull(new File(destDir, extension).list()).length);
+        }
+        assertEquals(4, progress.getStages().get(2).getThreads());
+        assertEquals(100, progress.getStages().get(2).getProcessed());
+    }
+
+    @Test
+    void testIncrementalRunSkipsUnchangedEntries(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+
+        // Create subdirectories that every run leaves in place, and one file
+        for (int i = 0; i < 3; i++) {
+            assertTrue(new File(sourceDir, "folder" + i).mkdir());
+        }
+        createTestFile(sourceDir, "document.txt", "text");
+        OrganizeOptions options = new OrganizeOptions().setIncremental(true);
+
+        // The first run evaluates everything and records the directories
+        OrganizeResult first = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+        assertEquals(1, first.getMoved());
+        assertEquals(0, first.getUnchanged());
+        assertTrue(new File(sourceDir, ".file-organizer-index").exists());
+
+        // The next run finds the directories unchanged
+        OrganizeResult second = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+        assertEquals(0, second.getMoved());
+        assertEquals(3, second.getUnchanged());
+
+        // A new file is still picked up
+        createTestFile(sourceDir, "photo.jpg", "image");
+        OrganizeResult third = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+        assertEquals(1, third.getMoved());
+        assertEquals(3, third.getUnchanged());
+        assertTrue(new File(destDir, "jpg/photo.jpg").exists());
+    }
+
+    @Test
+    void testIncrementalLinkRunDoesNotLinkFilesAgain(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+        createTestFile(sourceDir, "document.txt", "text");
+        OrganizeOptions options = new OrganizeOptions().setIncremental(true)
+                .setMaterializeMode(MaterializeMode.HARDLINK);
+
+        // Link twice
+        fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(), new CancellationToken());
+        OrganizeResult second = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+
+        // Verify the second run left the linked file alone instead of adding a copy
+        assertEquals(0, second.getMoved());
+        assertEquals(1, second.getUnchanged());
+        assertEquals(1, Objects.requireNonNull(new File(destDir, "txt").list()).length);
+    }
+
+    @Test
+    void testIncrementalLinkRunReplacesLinkOfChangedFile(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+        File source = createTestFile(sourceDir, "document.txt", "text");
+        if (Files.readAttributes(source.toPath(), BasicFileAttributes.class).fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+        OrganizeOptions options = new OrganizeOptions().setIncremental(true)
+                .setMaterializeMode(MaterializeMode.HARDLINK);
+
+        // Link, then replace the source file with a new one and link again
+        fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(), new CancellationToken());
+        assertTrue(source.delete());
+        createTestFile(sourceDir, "document.txt", "new text");
+        OrganizeResult second = fileOrganizer.organize(sourceDir, destDir, options, new OrganizeProgress(),
+                new CancellationToken());
+
+        // Verify the earlier link was replaced instead of linking a second copy
+        assertEquals(1, second.getMoved());
+        assertEquals(List.of("document.txt"), List.of(Objects.requireNonNull(new File(destDir, "txt").list())));
+        assertTrue(Files.isSameFile(source.toPath(), destDir.toPath().resolve("txt/document.txt")));
+    }
+
+    @Test
+    void testIncrementalRunWithAnotherModeStartsOver(@TempDir Path tempDir) throws IOException {
+        // Create source and destination directories
+        File sourceDir = tempDir.resolve("source").toFile();
+        assertTrue(sourceDir.mkdir());
+        File destDir = tempDir.resolve("destination").toFile();
+        assertTrue(destDir.mkdir());
+        createTestFile(sourceDir, "document.txt", "text");
+
+        // Link, then move with the same index
+        fileOrganizer.organize(sourceDir, destDir,
+                new OrganizeOptions().setIncremental(true).setMaterializeMode(MaterializeMode.HARDLINK),
+                new OrganizeProgress(), new CancellationToken());
+        OrganizeResult moved = fileOrganizer.organize(sourceDir, destDir, new OrganizeOptions().setIncremental(true),
+                new OrganizeProgress(), new CancellationToken());
+
+        // Verify the move run did not trust the link run's index
+        assertEquals(1, moved.getMoved());
+        assertFalse(new File(sourceDir, "document.txt").exists());
+    }
+
     /** Helper method to create a test file with content */
     private File createTestFile(File directory, String filename, String content) throws IOException {
         File file = new File(directory, filename);
@@ -0,0 +1,21 @@
+package com.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link NameEscaping}. */
+public class NameEscapingTest {
+
+    @Test
+    void testEscapedNamesRoundTrip() {
+        for (String name : new String[] { "plain.txt", "back\\slash", "line\nbreak\r.txt", "tab\t.txt", "#notes", "a#b",
+                "\\n" }) {
+            String escaped = NameEscaping.escape(name);
+            assertFalse(escaped.contains("\n") || escaped.contains("\r") || escaped.contains("\t")
+                    || escaped.startsWith("#"), escaped);
+            assertEquals(name, NameEscaping.unescape(escaped));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ShardLayout}. */
+public class ShardLayoutTest {
+
+    @Test
+    void testNoneLayoutHasNoShardPath() {
+        ShardLayout layout = ShardLayout.none();
+
+        assertFalse(layout.isSharded());
+        assertEquals("", layout.shardPath("photo.jpg", 0L));
+    }
+
+    @Test
+    void testHashLayoutIsStableAndShaped() {
+        ShardLayout layout = ShardLayout.nameHash(2, 2);
+
+        String path = layout.shardPath("photo.jpg", 0L);
+
+        // Two levels of two hex digits each
+        assertTrue(path.matches("[0-9a-f]{2}/[0-9a-f]{2}"), path);
+
+        // The same name always maps to the same shard, regardless of timestamps
+        assertEquals(path, layout.shardPath("photo.jpg", 123456789L));
+    }
+
+    @Test
+    void testHashLayoutHonorsWidthAndDepth() {
+        assertTrue(ShardLayout.nameHash(1, 3).shardPath("a.txt", 0L).matches("[0-9a-f]/[0-9a-f]/[0-9a-f]"));
+        assertTrue(ShardLayout.nameHash(4, 1).shardPath("a.txt", 0L).matches("[0-9a-f]{4}"));
+    }
+
+    @Test
+    void testHashLayoutRejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.nameHash(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.nameHash(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.nameHash(3, 3));
+    }
+
+    @Test
+    void testModificationTimeLayout() {
+        long millis = LocalDateTime.of(2026, 10, 5, 12, 0).atZone(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        assertEquals("2026", ShardLayout.modificationTime(1).shardPath("a.txt", millis));
+        assertEquals("2026/10", ShardLayout.modificationTime(2).shardPath("a.txt", millis));
+        assertEquals("2026/10/05", ShardLayout.modificationTime(3).shardPath("a.txt", millis));
+
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.modificationTime(4));
+    }
+
+    @Test
+    void testModificationTimeLayoutUsesUtc() {
+        // 23:30 UTC is already the next day in most time zones east of UTC
+        long millis = LocalDateTime.of(2026, 12, 31, 23, 30).atZone(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        assertEquals("2026/12/31", ShardLayout.modificationTime(3).shardPath("a.txt", millis));
+    }
+
+    @Test
+    void testOfIgnoresSizesForNone() {
+        assertFalse(ShardLayout.of(ShardLayout.Type.NONE, 0, 0).isSharded());
+        assertEquals(ShardLayout.Type.HASH, ShardLayout.of(ShardLayout.Type.HASH, 2, 2).getType());
+    }
+}
@@ -0,0 +1,155 @@
+package com.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link SourceIndex}. */
+public class SourceIndexTest {
+
+    @Test
+    void testRecordedEntriesAreUnchangedUntilModified(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        File destDir = tempDir.resolve("dest").toFile();
+        Path file = Files.write(tempDir.resolve("photo\njpg"), "image".getBytes());
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+
+        // Record an entry and write the index
+        SourceIndex index = read(sourceDir, destDir);
+        assertEquals(0, index.size());
+        index.record("photo\njpg", attrs, null);
+        index.write(sourceDir, null, System.currentTimeMillis(), true);
+
+        // The next run sees the entry as unchanged
+        SourceIndex reread = read(sourceDir, destDir);
+        assertEquals(1, reread.size());
+        assertTrue(reread.isUnchanged("photo\njpg", attrs));
+
+        // A different size or modified time makes it changed
+        Files.write(file, "larger image".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        BasicFileAttributes changed = Files.readAttributes(file, BasicFileAttributes.class);
+        assertFalse(read(sourceDir, destDir).isUnchanged("photo\njpg", changed));
+    }
+
+    @Test
+    void testSnapshotIsOnlyKeptForSettledDirectories(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        File destDir = tempDir.resolve("dest").toFile();
+        Files.setLastModifiedTime(tempDir, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        BasicFileAttributes directoryAttrs = Files.readAttributes(tempDir, BasicFileAttributes.class);
+        if (directoryAttrs.fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+
+        // A directory modified just before the snapshot is not trusted
+        read(sourceDir, destDir).write(sourceDir, directoryAttrs,
+                directoryAttrs.lastModifiedTime().toMillis() + 1, true);
+        assertFalse(read(sourceDir, destDir).isDirectoryUnchanged(directoryAttrs));
+
+        // A settled directory is
+        read(sourceDir, destDir).write(sourceDir, directoryAttrs, System.currentTimeMillis(), true);
+        assertTrue(read(sourceDir, destDir).isDirectoryUnchanged(directoryAttrs));
+
+        // The snapshot belongs to the destination it was written for
+        assertFalse(read(sourceDir, tempDir.resolve("other").toFile())
+                .isDirectoryUnchanged(directoryAttrs));
+    }
+
+    @Test
+    void testChangedEntryKeepsItsDestination(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        File destDir = tempDir.resolve("dest").toFile();
+        Path file = Files.write(tempDir.resolve("photo.jpg"), "image".getBytes());
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+
+        // Record an entry linked under a name with a tab
+        SourceIndex index = read(sourceDir, destDir);
+        index.record("photo.jpg", attrs, new File(destDir, "jpg/photo\t1.jpg"));
+        index.write(sourceDir, null, System.currentTimeMillis(), true);
+
+        // Once the entry changes, its destination is still known
+        Files.write(file, "larger image".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        BasicFileAttributes changed = Files.readAttributes(file, BasicFileAttributes.class);
+        SourceIndex reread = read(sourceDir, destDir);
+        assertFalse(reread.isUnchanged("photo.jpg", changed));
+        assertEquals("jpg/photo\t1.jpg", reread.changedDestination("photo.jpg"));
+    }
+
+    @Test
+    void testIndexBelongsToModeAndShardLayout(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        File destDir = tempDir.resolve("dest").toFile();
+        Path file = Files.write(tempDir.resolve("photo.jpg"), "image".getBytes());
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+
+        // Write an index for a hard link run
+        SourceIndex index = SourceIndex.read(sourceDir, destDir, MaterializeMode.HARDLINK, ShardLayout.none());
+        index.record("photo.jpg", attrs, null);
+        index.write(sourceDir, null, System.currentTimeMillis(), true);
+        assertEquals(1, SourceIndex.read(sourceDir, destDir, MaterializeMode.HARDLINK, ShardLayout.none()).size());
+
+        // A run with another mode or shard layout starts over
+        assertEquals(0, SourceIndex.read(sourceDir, destDir, MaterializeMode.MOVE, ShardLayout.none()).size());
+        assertEquals(0,
+                SourceIndex.read(sourceDir, destDir, MaterializeMode.HARDLINK, ShardLayout.nameHash(2, 2)).size());
+    }
+
+    @Test
+    void testIndexIsOnlyRewrittenWhenEntriesChange(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        File destDir = tempDir.resolve("dest").toFile();
+        Path file = Files.write(tempDir.resolve("photo.jpg"), "image".getBytes());
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.fileKey() == null) {
+            return; // File keys are not available on every platform
+        }
+
+        // The first run writes the index
+        SourceIndex index = read(sourceDir, destDir);
+        index.record("photo.jpg", attrs, null);
+        assertTrue(index.write(sourceDir, null, System.currentTimeMillis(), true));
+
+        // A run that only carries the entry over leaves the file alone
+        SourceIndex unchanged = read(sourceDir, destDir);
+        assertTrue(unchanged.isUnchanged("photo.jpg", attrs));
+        assertFalse(unchanged.write(sourceDir, null, System.currentTimeMillis(), true));
+
+        // A run that no longer sees the entry drops it
+        assertTrue(read(sourceDir, destDir).write(sourceDir, null, System.currentTimeMillis(), true));
+        assertEquals(0, read(sourceDir, destDir).size());
+    }
+
+    @Test
+    void testIncompleteIndexIsRejected(@TempDir Path tempDir) throws IOException {
+        File sourceDir = tempDir.toFile();
+        Files.write(tempDir.resolve(SourceIndex.FILE_NAME),
+                "# file-organizer index v2\ndest\t/dest\nmode\tMOVE\nshard\tnone\ndir\t-\n".getBytes());
+
+        assertThrows(IOException.class, () -> read(sourceDir, new File("/dest")));
+    }
+
+    private static SourceIndex read(File sourceDir, File destDir) throws IOException {
+        return SourceIndex.read(sourceDir, destDir, MaterializeMode.MOVE, ShardLayout.none());
+    }
+}